@@ -0,0 +1,115 @@
+package com.example.weather;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Daily min/max aggregation over an already extracted series.
+ * `perEntryFormatter` is the original printer/exporter path (a formatter and ZonedDateTime per
+ * entry, String keys in a LinkedHashMap); `sharedFormatter` the label scan Forecast used before
+ * DayBuckets; `dayBuckets*` the arithmetic bucketing with a fixed offset and with DST rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregateBenchmark {
+
+    @Param({"8", "40", "120"})
+    int entries;
+
+    long[] dt;
+    double[] temps, feels, winds;
+    int[] humidities;
+    String[] descriptions;
+    DayBuckets fixed = DayBuckets.forOffset(19800);
+    DayBuckets region = DayBuckets.of(ZoneId.of("America/New_York"));
+    static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    @Setup
+    public void setup() {
+        Forecast f = Forecast.parse(Fixtures.combined(entries));
+        int n = f.size();
+        dt = new long[n];
+        temps = new double[n];
+        feels = new double[n];
+        winds = new double[n];
+        humidities = new int[n];
+        descriptions = new String[n];
+        for (int i = 0; i < n; i++) {
+            dt[i] = f.dt(i);
+            temps[i] = f.temp(i);
+            feels[i] = f.feelsLike(i);
+            winds[i] = f.wind(i);
+            humidities[i] = f.humidity(i);
+            descriptions[i] = f.description(i);
+        }
+    }
+
+    @Benchmark
+    public Forecast dailyMinMax() {
+        return new Forecast(26.4, 26.4, 83, 4.1, "broken clouds",
+                dt.length, dt, temps, feels, humidities, winds, descriptions);
+    }
+
+    @Benchmark
+    public Map<String, double[]> perEntryFormatter() {
+        Map<String, double[]> days = new LinkedHashMap<>();
+        for (int i = 0; i < dt.length; i++) {
+            String day = Instant.ofEpochSecond(dt[i]).atZone(ZoneId.systemDefault())
+                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            double[] mm = days.get(day);
+            if (mm == null) days.put(day, new double[]{temps[i], temps[i]});
+            else {
+                mm[0] = Math.min(mm[0], temps[i]);
+                mm[1] = Math.max(mm[1], temps[i]);
+            }
+        }
+        return days;
+    }
+
+    @Benchmark
+    public double[] sharedFormatter() {
+        String[] labels = new String[8];
+        double[] min = new double[8], max = new double[8];
+        int d = 0;
+        for (int i = 0; i < dt.length; i++) {
+            String label = Instant.ofEpochSecond(dt[i]).atZone(ZoneId.systemDefault()).format(DAY);
+            int k = d - 1;
+            while (k >= 0 && !labels[k].equals(label)) k--;
+            if (k < 0) {
+                if (d == labels.length) {
+                    labels = Arrays.copyOf(labels, d * 2);
+                    min = Arrays.copyOf(min, d * 2);
+                    max = Arrays.copyOf(max, d * 2);
+                }
+                labels[d] = label;
+                min[d] = temps[i];
+                max[d] = temps[i];
+                d++;
+            } else {
+                min[k] = Math.min(min[k], temps[i]);
+                max[k] = Math.max(max[k], temps[i]);
+            }
+        }
+        return max;
+    }
+
+    @Benchmark
+    public DayBuckets.Days dayBucketsFixedOffset() {
+        return fixed.aggregate(dt, temps, dt.length);
+    }
+
+    @Benchmark
+    public DayBuckets.Days dayBucketsZoneRules() {
+        return region.aggregate(dt, temps, dt.length);
+    }
+}
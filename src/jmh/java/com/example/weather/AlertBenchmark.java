@@ -0,0 +1,116 @@
+package com.example.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Alert evaluation for many rules across many cities (defaults: 10k rules x 500 cities).
+ * indexed: compiled rules through AlertRuleIndex, one op = every city evaluated once.
+ * reparse: the previous approach of re-parsing each rule string per city (temp and rain only).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertBenchmark {
+
+    @Param({"10000"})
+    int rules;
+
+    @Param({"500"})
+    int cities;
+
+    List<String> ruleText;
+    List<AlertRule> compiled;
+    AlertRuleIndex index;
+    String[] cityKeys;
+    Forecast[] forecasts;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        cityKeys = new String[cities];
+        forecasts = new Forecast[cities];
+        Forecast base = Forecast.parse(Fixtures.combined(40));
+        for (int c = 0; c < cities; c++) {
+            cityKeys[c] = "city" + c;
+            forecasts[c] = shifted(base, rnd.nextDouble() * 30 - 10, rnd.nextInt(100));
+        }
+
+        String[] metrics = {"temp", "feels", "humidity", "wind", "max", "min", "max@24h", "min@24h"};
+        ruleText = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            String scope = rnd.nextInt(5) == 0 ? cityKeys[rnd.nextInt(cities)] + ":" : "";
+            if (rnd.nextInt(50) == 0) {
+                ruleText.add(scope + (rnd.nextBoolean() ? "rain" : "rain@12h"));
+                continue;
+            }
+            String m = metrics[rnd.nextInt(metrics.length)];
+            double threshold = m.equals("humidity") ? rnd.nextInt(100) : m.equals("wind") ? rnd.nextInt(20) : rnd.nextInt(50) - 5;
+            ruleText.add(scope + m + (rnd.nextBoolean() ? "<" : ">") + threshold);
+        }
+        compiled = new ArrayList<>(rules);
+        for (String r : ruleText) compiled.add(AlertRule.compile(r));
+        index = AlertRuleIndex.build(compiled);
+    }
+
+    private static Forecast shifted(Forecast f, double delta, int humidity) {
+        int n = f.size();
+        long[] dt = new long[n];
+        double[] temps = new double[n], feels = new double[n], winds = new double[n];
+        int[] hums = new int[n];
+        String[] descs = new String[n];
+        for (int i = 0; i < n; i++) {
+            dt[i] = f.dt(i);
+            temps[i] = f.temp(i) + delta;
+            feels[i] = f.feelsLike(i) + delta;
+            hums[i] = humidity;
+            winds[i] = f.wind(i);
+            descs[i] = f.description(i);
+        }
+        return new Forecast(f.temp + delta, f.feelsLike + delta, humidity, f.wind, f.description,
+                n, dt, temps, feels, hums, winds, descs);
+    }
+
+    @Benchmark
+    public int indexed() {
+        int[] count = new int[1];
+        for (int c = 0; c < cities; c++) {
+            index.evaluate(cityKeys[c], forecasts[c], (id, v) -> count[0]++);
+        }
+        return count[0];
+    }
+
+    @Benchmark
+    public int reparse() {
+        int count = 0;
+        for (int c = 0; c < cities; c++) {
+            Forecast fc = forecasts[c];
+            boolean rain = fc.rainExpected();
+            for (String a : ruleText) {
+                if (a.startsWith("temp<")) {
+                    try {
+                        if (fc.temp < Double.parseDouble(a.substring(5))) count++;
+                    } catch (NumberFormatException ignored) {}
+                } else if (a.startsWith("temp>")) {
+                    try {
+                        if (fc.temp > Double.parseDouble(a.substring(5))) count++;
+                    } catch (NumberFormatException ignored) {}
+                } else if (a.equals("rain") && rain) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public AlertRuleIndex build() {
+        return AlertRuleIndex.build(compiled);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.weather;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * BulkExporter over 2M forecast rows (500 cached cities x 4000 entries); scores are rows/s.
+ * `formatted` is the old per-row String.format + FileWriter approach on the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dweather.cache.format=binary", "-Dweather.l1.maxEntries=100000",
+        "-Dweather.l1.maxBytes=4000000000"})
+public class BulkExportBenchmark {
+    static final int CITIES = 500;
+    static final int ENTRIES = 4000;
+    static final int ROWS = CITIES * ENTRIES;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    File dir;
+    List<String> cities;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("weather-bulk").toFile();
+        CacheDB.init(new File(dir, "cache.db").getPath());
+        String json = Fixtures.combined(ENTRIES);
+        Forecast fc = Forecast.parse(json);
+        cities = new ArrayList<>();
+        for (int i = 0; i < CITIES; i++) {
+            cities.add("city" + i);
+            CacheDB.put("city" + i, json, fc);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CacheDB.close();
+        delete(dir);
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) for (File c : files) delete(c);
+        f.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long singleFile() throws IOException {
+        return BulkExporter.export(cities, new File(dir, "all.csv"),
+                new BulkExporter.Options().gzip(gzip).parallelism(parallelism)).rows;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long perCity() throws IOException {
+        return BulkExporter.export(cities, new File(dir, "split"),
+                new BulkExporter.Options().gzip(gzip).perCity(true).parallelism(parallelism)).rows;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long formatted() throws IOException {
+        long rows = 0;
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(new File(dir, "formatted.csv")))) {
+            for (String city : cities) {
+                Forecast fc = CacheDB.getEntry(city).get().forecast();
+                for (int i = 0; i < fc.size(); i++) {
+                    w.write(String.format("%s,%d,%.2f,%.2f,%d,%.2f,%s\n", city, fc.dt(i), fc.temp(i),
+                            fc.feelsLike(i), fc.humidity(i), fc.wind(i), fc.description(i)));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.weather;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CacheDB lookups and upserts against a throwaway database.
+ * l1Hit stays in memory; sqliteRead drops the L1 entry first so every call reaches SQLite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dweather.l1.maxEntries=100000"})
+public class CacheBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int cities;
+
+    File dir;
+    String json;
+    String[] names;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("weather-bench").toFile();
+        CacheDB.init(new File(dir, "cache.db").getPath());
+        json = Fixtures.combined(40);
+        names = new String[cities];
+        for (int i = 0; i < cities; i++) {
+            names[i] = "city" + i;
+            CacheDB.put(names[i], json);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CacheDB.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    private String pick() {
+        return names[ThreadLocalRandom.current().nextInt(cities)];
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object l1Hit() {
+        return CacheDB.getEntry(pick());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object sqliteRead() {
+        String city = pick();
+        CacheDB.memory().invalidate(CacheDB.key(city));
+        return CacheDB.getEntry(city);
+    }
+
+    @Benchmark
+    public Object put() {
+        return CacheDB.put(pick(), json);
+    }
+}
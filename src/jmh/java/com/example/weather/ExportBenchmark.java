@@ -0,0 +1,48 @@
+package com.example.weather;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** CSVExporter.export from an already parsed forecast and from the cached JSON text. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"40", "120"})
+    int entries;
+
+    File dir;
+    String json;
+    Forecast forecast;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("weather-export").toFile();
+        json = Fixtures.combined(entries);
+        forecast = Forecast.parse(json);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public String exportParsed() {
+        return CSVExporter.export("Chennai", forecast, dir);
+    }
+
+    @Benchmark
+    public String exportFromJson() {
+        return CSVExporter.export("Chennai", Forecast.parse(json), dir);
+    }
+}
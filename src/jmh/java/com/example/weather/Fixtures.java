@@ -0,0 +1,56 @@
+package com.example.weather;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Recorded upstream payloads (src/main/resources/fixtures, shared with StubProvider) for offline benchmarks.
+ * The forecast list can be resized: entries are cycled and shifted forward in 3-hour
+ * steps so longer series still look like a contiguous forecast.
+ */
+public final class Fixtures {
+    private Fixtures() {}
+
+    public static String current() {
+        return resource("fixtures/current_chennai.json");
+    }
+
+    public static String forecast(int entries) {
+        JsonObject fc = JsonParser.parseString(resource("fixtures/forecast_chennai.json")).getAsJsonObject();
+        JsonArray recorded = fc.getAsJsonArray("list");
+        long start = recorded.get(0).getAsJsonObject().get("dt").getAsLong();
+        JsonArray list = new JsonArray();
+        for (int i = 0; i < entries; i++) {
+            JsonObject item = recorded.get(i % recorded.size()).getAsJsonObject().deepCopy();
+            item.addProperty("dt", start + i * 10800L);
+            list.add(item);
+        }
+        fc.add("list", list);
+        fc.addProperty("cnt", entries);
+        return fc.toString();
+    }
+
+    /** The {current, forecast} wrapper as stored in the cache. */
+    public static String combined(int entries) {
+        return "{\"current\":" + current() + ",\"forecast\":" + forecast(entries) + "}";
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("Missing fixture " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
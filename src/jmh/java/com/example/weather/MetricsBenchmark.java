@@ -0,0 +1,56 @@
+package com.example.weather;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of the always-on instrumentation: one timed stage (two nanoTime reads plus a
+ * histogram record) and one counter increment, single-threaded and with 4 threads
+ * contending on the same instances. `baseline` is the nanoTime pair alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    final Histogram timer = Metrics.timer("bench.stage");
+    final LongAdder counter = Metrics.counter("bench.counter");
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // spread over ~1us..10ms so percentile() walks a realistic number of buckets
+        for (long v = 1000; v < 10_000_000; v += 997) timer.record(v);
+    }
+
+    @Benchmark
+    public long baseline() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void timed() {
+        long start = System.nanoTime();
+        timer.recordSince(start);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void timedContended() {
+        long start = System.nanoTime();
+        timer.recordSince(start);
+    }
+
+    @Benchmark
+    public void counter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public long percentile() {
+        return timer.percentile(0.99);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.weather;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of turning a cached payload into something the printer and alerts can use:
+ * the old per-consumer Gson tree walk, the streaming reader, and the binary codec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"8", "40", "120"})
+    int entries;
+
+    String json;
+    byte[] binary;
+    AlertManager alerts;
+
+    @Setup
+    public void setup() {
+        json = Fixtures.combined(entries);
+        binary = ForecastCodec.encode(Forecast.parse(json));
+        alerts = new AlertManager();
+    }
+
+    /** What printSummaryCombined and checkAlerts each did before: a full DOM parse and walk. */
+    @Benchmark
+    public void gsonTree(Blackhole bh) {
+        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+        bh.consume(root.getAsJsonObject("current").getAsJsonObject("main").get("temp").getAsDouble());
+        JsonArray list = root.getAsJsonObject("forecast").getAsJsonArray("list");
+        for (JsonElement e : list) {
+            JsonObject item = e.getAsJsonObject();
+            bh.consume(item.get("dt").getAsLong());
+            bh.consume(item.getAsJsonObject("main").get("temp").getAsDouble());
+            bh.consume(item.getAsJsonArray("weather").get(0).getAsJsonObject().get("description").getAsString());
+        }
+    }
+
+    @Benchmark
+    public Forecast streaming() {
+        return Forecast.parse(json);
+    }
+
+    @Benchmark
+    public Forecast binaryDecode() {
+        return ForecastCodec.decode(binary);
+    }
+
+    @Benchmark
+    public Object checkAlertsFromJson() {
+        return alerts.checkAlerts("Chennai", json);
+    }
+}
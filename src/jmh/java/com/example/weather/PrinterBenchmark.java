@@ -0,0 +1,96 @@
+package com.example.weather;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Rendering `cities` forecasts to a stdout-like stream (128-byte buffer, autoflush, like System.out)
+ * over /dev/null. `printf` is the previous per-field printf / per-bar print rendering,
+ * `buffered` is ForecastPrinter.printSummary per city, `dashboard` one printDashboard line per city.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrinterBenchmark {
+    private static final String RESET = "\u001B[0m";
+    private static final String GREEN = "\u001B[32m";
+    private static final String YELLOW = "\u001B[33m";
+    private static final String CYAN = "\u001B[36m";
+    private static final String MAGENTA = "\u001B[35m";
+
+    @Param({"1", "200"})
+    int cities;
+
+    PrintStream saved;
+    PrintStream out;
+    Forecast forecast;
+    List<BatchFetcher.Result> results;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        forecast = Forecast.parse(Fixtures.combined(40));
+        CacheDB.Entry entry = new CacheDB.Entry(forecast, 0, 1);
+        results = new ArrayList<>(cities);
+        for (int i = 0; i < cities; i++) results.add(BatchFetcher.Result.cached("City " + i, entry, false));
+        saved = System.out;
+        out = new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null"), 128), true, "UTF-8");
+        System.setOut(out);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(saved);
+        out.close();
+    }
+
+    @Benchmark
+    public void printf() {
+        for (int i = 0; i < cities; i++) legacy(out, "City " + i, forecast);
+    }
+
+    @Benchmark
+    public void buffered() {
+        for (int i = 0; i < cities; i++) ForecastPrinter.printSummary("City " + i, forecast);
+    }
+
+    @Benchmark
+    public void dashboard() {
+        ForecastPrinter.printDashboard(results);
+    }
+
+    // The rendering ForecastPrinter.printSummary used before it was buffered
+    static void legacy(PrintStream ps, String city, Forecast fc) {
+        ps.println();
+        ps.print(String.format("%s %sWeather for %s%s", "☁️", CYAN, city, RESET) + " — ");
+        ps.printf("%s%.1f°C%s", YELLOW, fc.temp, RESET);
+        ps.printf(" (Feels like %s%.1f°C%s)", MAGENTA, fc.feelsLike, RESET);
+        ps.printf("  Humidity: %s%d%%%s", GREEN, fc.humidity, RESET);
+        ps.printf("  Wind: %s%.1f m/s%s", CYAN, fc.wind, RESET);
+        ps.printf("  Condition: %s%s%s\n", YELLOW, fc.description, RESET);
+        int shown = Math.min(5, fc.days());
+        ps.println();
+        ps.println("5-day aggregated forecast:");
+        for (int d = 0; d < shown; d++) {
+            ps.printf(" %s — %s%.1f%s/%s%.1f%s %s\n", fc.dayLabel(d), GREEN, fc.dayMin(d), RESET,
+                    YELLOW, fc.dayMax(d), RESET, " 🌤️");
+        }
+        ps.println();
+        ps.println("5-day highs (ASCII):");
+        for (int d = 0; d < shown; d++) {
+            double max = fc.dayMax(d);
+            ps.printf("%s | ", fc.dayLabel(d));
+            for (int b = 0; b < Math.max(0, (int) Math.round(max)); b++) ps.print("#");
+            ps.printf(" %s%.1f°C%s\n", YELLOW, max, RESET);
+        }
+        ps.println();
+    }
+}
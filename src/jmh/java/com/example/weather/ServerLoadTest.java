@@ -0,0 +1,111 @@
+package com.example.weather;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for WeatherServer against a local stand-in for the OpenWeather API.
+ * A StubServer replays the recorded fixtures over HTTP with the given latency, jitter and
+ * error rate, and the server's upstream calls go to it through the normal HTTP path; clients then hammer /weather, /daily and /alerts for a set of cities over keep-alive
+ * connections and the latency percentiles are printed at the end.
+ *
+ *   java -cp target/benchmarks.jar com.example.weather.ServerLoadTest [clients] [seconds] [cities] [upstreamMs] [jitterMs] [errorRate]
+ */
+public class ServerLoadTest {
+    private static final String[] ENDPOINTS = {"weather", "daily", "alerts"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cities = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int upstreamMs = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        int jitterMs = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+
+        // must be set before the JDK server and client classes are first touched
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // keep one idle connection per client (and the server's own upstream calls) alive
+        System.setProperty("http.maxConnections", String.valueOf(clients + 32));
+        StubProvider stub = new StubProvider(null, upstreamMs, jitterMs, errorRate);
+        StubServer upstream = new StubServer(0, stub);
+        upstream.start();
+        WeatherClient.setProvider(new OpenWeatherProvider(upstream.baseUrl(), "load-test"));
+
+        File dir = Files.createTempDirectory("weather-load").toFile();
+        CacheDB.init(new File(dir, "cache.db").getPath());
+        WeatherServer server = new WeatherServer(0, new AlertManager());
+        server.start();
+        String base = "http://127.0.0.1:" + server.port() + "/";
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        Thread[] threads = new Thread[clients];
+        for (int t = 0; t < clients; t++) {
+            long[] samples = new long[1 << 20];
+            latencies.add(samples);
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                int n = 0;
+                byte[] buf = new byte[8192];
+                while (System.nanoTime() < deadline && n < samples.length - 1) {
+                    String path = ENDPOINTS[rnd.nextInt(ENDPOINTS.length)] + "/city" + rnd.nextInt(cities);
+                    long start = System.nanoTime();
+                    try {
+                        HttpURLConnection c = (HttpURLConnection) new URL(base + path).openConnection();
+                        int code = c.getResponseCode();
+                        try (InputStream in = code < 400 ? c.getInputStream() : c.getErrorStream()) {
+                            if (in != null) while (in.read(buf) != -1) { /* drain for keep-alive */ }
+                        }
+                        if (code != 200) errors.incrementAndGet();
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    samples[++n] = System.nanoTime() - start;
+                }
+                samples[0] = n;
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+
+        int total = 0;
+        for (long[] s : latencies) total += (int) s[0];
+        long[] all = new long[total];
+        int k = 0;
+        for (long[] s : latencies) {
+            System.arraycopy(s, 1, all, k, (int) s[0]);
+            k += (int) s[0];
+        }
+        Arrays.sort(all);
+        System.out.printf("%d clients, %d cities, upstream %d+/-%d ms, error rate %.3f, %d s%n",
+                clients, cities, upstreamMs, jitterMs, errorRate, seconds);
+        System.out.printf("requests=%d (%.0f/s), errors=%d%n", total, total / (double) seconds, errors.get());
+        System.out.printf("latency us: p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+                pct(all, 0.50), pct(all, 0.90), pct(all, 0.99), pct(all, 0.999), total == 0 ? 0 : all[total - 1] / 1000);
+        System.out.println("upstream: " + stub.stats());
+        System.out.println("server: " + server.stats());
+
+        server.stop();
+        upstream.stop();
+        CacheDB.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+        System.exit(0);
+    }
+
+    private static long pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1000;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.weather;
+
+import java.util.Arrays;
+
+/**
+ * Request timeout derived from recent successful latencies: a multiple of their p99,
+ * kept between a floor and the configured maximum. Until enough samples exist the
+ * maximum is used, so a cold start never times out requests that would have succeeded.
+ */
+public class AdaptiveTimeout {
+    private static final int MIN_SAMPLES = 20;
+    private static final double P99_MULTIPLIER = 3.0;
+
+    private final long[] window;
+    private final int minMillis;
+    private final int maxMillis;
+    private int next;
+    private int count;
+    private int sinceUpdate;
+    private volatile int current;
+
+    public AdaptiveTimeout(int windowSize, int minMillis, int maxMillis) {
+        this.window = new long[windowSize];
+        this.minMillis = Math.min(minMillis, maxMillis);
+        this.maxMillis = maxMillis;
+        this.current = maxMillis;
+    }
+
+    public int timeoutMillis() {
+        return current;
+    }
+
+    public synchronized void record(long millis) {
+        window[next] = millis;
+        next = (next + 1) % window.length;
+        if (count < window.length) count++;
+        // recompute every 16 samples; the sort is over a small fixed window
+        if (++sinceUpdate >= 16 && count >= MIN_SAMPLES) {
+            sinceUpdate = 0;
+            long p99 = percentile(0.99);
+            current = (int) Math.max(minMillis, Math.min(maxMillis, p99 * P99_MULTIPLIER));
+        }
+    }
+
+    public synchronized long percentile(double p) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(window, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) (count * p))];
+    }
+}
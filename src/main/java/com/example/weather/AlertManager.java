@@ -1,143 +1,145 @@
 package com.example.weather;
 
-import com.google.gson.*;
-import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Simple alert manager that persists alerts in alerts.txt (one per line).
- * Supported alert formats:
+ * Simple alert manager that persists alerts through an AlertStore (alerts.txt plus an append-only alerts.log).
+ * Supported alert formats (see AlertRule for the full syntax):
  *  - temp<NUMBER    (e.g. temp<20)  -> triggers when CURRENT temperature < NUMBER (°C)
  *  - temp>NUMBER    (e.g. temp>30)  -> triggers when CURRENT temperature > NUMBER (°C)
- *  - rain           -> triggers if forecast contains "rain" or "shower" within next 5 days
+ *  - feels / humidity / wind with < or >, e.g. humidity>90, wind>12
+ *  - max>NUMBER / min<NUMBER        -> forecast high / low, optionally max@24h>35
+ *  - rain           -> triggers if forecast contains "rain" or "shower" within next 5 days (or rain@12h)
+ *  - prefix with "city:" to limit a rule to one city, e.g. chennai:temp>38
+ * Rules are compiled once and evaluated through an AlertRuleIndex, rebuilt lazily after changes.
  */
 public class AlertManager {
     private static final String ALERT_FILE = "alerts.txt";
-    private final List<String> alerts = new ArrayList<>();
+    private static final String ALERT_LOG = "alerts.log";
+    private static final Histogram CHECK = Metrics.timer("alerts.check");
+    private static final Histogram TRANSITIONS = Metrics.timer("alerts.transitions");
+    private volatile AlertStore store;
+    private volatile AlertRuleIndex index;
+    private final AtomicInteger version = new AtomicInteger();
+    private final AlertTracker tracker = new AlertTracker();
 
-    public AlertManager() {
-        load();
-    }
-
-    private void load() {
-        alerts.clear();
-        File f = new File(ALERT_FILE);
-        if (!f.exists()) return;
-        try (BufferedReader r = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) alerts.add(line);
+    // alerts.txt and alerts.log are read on first use rather than at startup
+    private AlertStore store() {
+        AlertStore s = store;
+        if (s == null) {
+            synchronized (this) {
+                s = store;
+                if (s == null) {
+                    s = new AlertStore(Paths.get(ALERT_FILE), Paths.get(ALERT_LOG), Config.ALERT_COMPACT_AFTER);
+                    store = s;
+                }
             }
-        } catch (IOException e) {
-            System.err.println("Failed to load alerts: " + e.getMessage());
         }
+        return s;
     }
 
-    private void save() {
-        try (BufferedWriter w = new BufferedWriter(new FileWriter(ALERT_FILE))) {
-            for (String a : alerts) {
-                w.write(a);
-                w.newLine();
+    private AlertRuleIndex index() {
+        AlertRuleIndex idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    Collection<String> rules = store().entries().values();
+                    List<AlertRule> compiled = new ArrayList<>(rules.size());
+                    for (String a : rules) compiled.add(AlertRule.compile(a));
+                    idx = AlertRuleIndex.build(compiled);
+                    index = idx;
+                }
             }
-        } catch (IOException e) {
-            System.err.println("Failed to save alerts: " + e.getMessage());
         }
+        return idx;
     }
 
-    public List<String> listAlerts() {
-        return new ArrayList<>(alerts);
+    /** Saved alerts keyed by their stable id, in the order they were added. */
+    public Map<Integer, String> listAlerts() {
+        return store().entries();
     }
 
     public boolean addAlert(String alert) {
         alert = alert.trim().toLowerCase();
         if (alert.isEmpty()) return false;
-        if (alerts.contains(alert)) return false;
-        alerts.add(alert);
-        save();
+        if (AlertRule.compile(alert) == null) return false;
+        // under the lock index() rebuilds with, so a rebuild that read the old rules cannot be published afterwards
+        synchronized (this) {
+            if (store().add(alert) < 0) return false;
+            changed();
+        }
         return true;
     }
 
-    public boolean removeAlert(int index) {
-        if (index < 1 || index > alerts.size()) return false;
-        alerts.remove(index - 1);
-        save();
+    public boolean removeAlert(int id) {
+        synchronized (this) {
+            if (!store().remove(id)) return false;
+            changed();
+        }
         return true;
     }
 
+    // caller holds the lock; the version moves only after the old index is dropped
+    private void changed() {
+        index = null;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Incremental check for polling: only rules whose metric changed since this city's
+     * previous check are re-evaluated, and only fired/cleared transitions are returned.
+     */
+    public List<AlertTracker.Transition> checkTransitions(String city, Forecast fc) {
+        if (fc == null) return new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            return tracker.check(city, fc, index());
+        } finally {
+            TRANSITIONS.recordSince(start);
+        }
+    }
+
+    /** Changes whenever a rule is added or removed. */
+    public int version() {
+        return version.get();
+    }
+
+    public AlertTracker tracker() {
+        return tracker;
+    }
+
     /**
      * Check alerts against the combined JSON (wrapper {current, forecast}).
      * Returns list of triggered alert messages (human readable).
      */
     public List<String> checkAlerts(String city, String combinedJson) {
-        List<String> triggered = new ArrayList<>();
-        if (combinedJson == null) return triggered;
-        JsonObject root;
+        if (combinedJson == null) return new ArrayList<>();
+        Forecast fc;
         try {
-            root = JsonParser.parseString(combinedJson).getAsJsonObject();
+            fc = Forecast.parse(combinedJson);
         } catch (Exception e) {
-            return triggered;
+            return new ArrayList<>();
         }
+        return checkAlerts(city, fc);
+    }
 
-        // current temperature (C)
-        Double currentTemp = null;
-        try {
-            JsonObject current = root.getAsJsonObject("current");
-            if (current != null && current.has("main") && current.getAsJsonObject("main").has("temp")) {
-                currentTemp = current.getAsJsonObject("main").get("temp").getAsDouble();
-            } else if (current != null && current.has("temp")) {
-                currentTemp = current.get("temp").getAsDouble();
-            }
-        } catch (Exception ignored) {}
-
-        // forecast check for rain/shower
-        boolean rainExpected = false;
-        try {
-            JsonObject forecast = root.getAsJsonObject("forecast");
-            if (forecast != null && forecast.has("list")) {
-                JsonArray list = forecast.getAsJsonArray("list");
-                for (JsonElement e : list) {
-                    try {
-                        JsonObject item = e.getAsJsonObject();
-                        if (item.has("weather")) {
-                            JsonArray w = item.getAsJsonArray("weather");
-                            if (w.size() > 0) {
-                                String desc = w.get(0).getAsJsonObject().get("description").getAsString().toLowerCase();
-                                if (desc.contains("rain") || desc.contains("shower") || desc.contains("drizzle")) {
-                                    rainExpected = true;
-                                    break;
-                                }
-                            }
-                        }
-                    } catch (Exception ex) { /* skip */ }
-                }
-            }
-        } catch (Exception ignored) {}
+    /** Check alerts against an already parsed forecast. */
+    public List<String> checkAlerts(String city, Forecast fc) {
+        List<String> triggered = new ArrayList<>();
+        if (fc == null) return triggered;
 
-        for (String a : alerts) {
-            if (a.startsWith("temp<")) {
-                try {
-                    double v = Double.parseDouble(a.substring(5));
-                    if (currentTemp != null && currentTemp < v) {
-                        triggered.add(String.format("Temp Alert: %s current %.1f°C < %.1f°C", city, currentTemp, v));
-                    }
-                } catch (NumberFormatException ignored) {}
-            } else if (a.startsWith("temp>")) {
-                try {
-                    double v = Double.parseDouble(a.substring(5));
-                    if (currentTemp != null && currentTemp > v) {
-                        triggered.add(String.format("Temp Alert: %s current %.1f°C > %.1f°C", city, currentTemp, v));
-                    }
-                } catch (NumberFormatException ignored) {}
-            } else if (a.equals("rain")) {
-                if (rainExpected) {
-                    triggered.add(String.format("Rain Alert: Rain expected in %s in the forecast.", city));
-                }
-            } else {
-                // unknown alert type - ignore or future expansion
-            }
+        long start = System.nanoTime();
+        AlertRuleIndex idx = index();
+        // report in the order the alerts were added
+        TreeMap<Integer, Double> fired = new TreeMap<>();
+        idx.evaluate(CityResolver.cacheKey(city), fc, fired::put);
+        for (Map.Entry<Integer, Double> f : fired.entrySet()) {
+            triggered.add(idx.rule(f.getKey()).message(city, f.getValue()));
         }
-
+        CHECK.recordSince(start);
         return triggered;
     }
 }
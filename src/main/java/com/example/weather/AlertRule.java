@@ -0,0 +1,161 @@
+package com.example.weather;
+
+import java.util.Locale;
+
+/**
+ * An alert string compiled once into a typed threshold check.
+ *
+ * Syntax: [city:]metric[@Nh](<|>)number, or [city:]rain[@Nh]
+ *   temp, feels, humidity, wind  -> current conditions
+ *   max, min                     -> highest / lowest forecast temperature
+ *   rain                         -> rain, showers or drizzle anywhere in the forecast
+ *   @Nh                          -> only look at the first N hours of the forecast
+ *   city:                        -> only applies to that city (otherwise every city)
+ * Examples: temp<20, humidity>90, wind>12.5, max@24h>35, rain@12h, chennai:temp>38
+ */
+public final class AlertRule {
+
+    public enum Metric {
+        TEMP, FEELS, HUMIDITY, WIND, MAX, MIN, RAIN;
+
+        boolean forecastWindow() {
+            return this == MAX || this == MIN || this == RAIN;
+        }
+    }
+
+    public final String text;
+    public final String city;      // CacheDB.key of the scope as written, or null for all cities
+    public final Metric metric;
+    public final int windowHours;  // 0 = whole forecast
+    public final boolean below;    // true for '<', false for '>'
+    public final double threshold;
+
+    private AlertRule(String text, String city, Metric metric, int windowHours, boolean below, double threshold) {
+        this.text = text;
+        this.city = city;
+        this.metric = metric;
+        this.windowHours = windowHours;
+        this.below = below;
+        this.threshold = threshold;
+    }
+
+    /** Compiles an alert string; returns null if it is not valid. */
+    public static AlertRule compile(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        String city = null;
+        int colon = s.indexOf(':');
+        if (colon >= 0) {
+            city = CacheDB.key(s.substring(0, colon));
+            s = s.substring(colon + 1).trim();
+            if (city.isEmpty()) return null;
+        }
+
+        int op = -1;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '<' || c == '>') {
+                op = i;
+                break;
+            }
+        }
+        String head = (op < 0 ? s : s.substring(0, op)).trim();
+        int window = 0;
+        int at = head.indexOf('@');
+        if (at >= 0) {
+            String w = head.substring(at + 1).trim();
+            if (!w.endsWith("h")) return null;
+            try {
+                window = Integer.parseInt(w.substring(0, w.length() - 1).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (window <= 0) return null;
+            head = head.substring(0, at).trim();
+        }
+        Metric metric = metric(head);
+        if (metric == null) return null;
+        if (window > 0 && !metric.forecastWindow()) return null;
+
+        if (metric == Metric.RAIN) {
+            if (op >= 0) return null;
+            // rain is a 0/1 signal: fires when the "rain seen" value exceeds 0.5
+            return new AlertRule(text.trim().toLowerCase(Locale.ROOT), city, metric, window, false, 0.5);
+        }
+        if (op < 0) return null;
+        double threshold;
+        try {
+            threshold = Double.parseDouble(s.substring(op + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (Double.isNaN(threshold) || Double.isInfinite(threshold)) return null;
+        return new AlertRule(text.trim().toLowerCase(Locale.ROOT), city, metric, window, s.charAt(op) == '<', threshold);
+    }
+
+    private static Metric metric(String name) {
+        switch (name) {
+            case "temp": return Metric.TEMP;
+            case "feels": case "feels_like": return Metric.FEELS;
+            case "humidity": return Metric.HUMIDITY;
+            case "wind": return Metric.WIND;
+            case "max": return Metric.MAX;
+            case "min": return Metric.MIN;
+            case "rain": return Metric.RAIN;
+            default: return null;
+        }
+    }
+
+    /** Value of this rule's metric for a forecast (NaN when not available). */
+    static double value(Metric metric, int windowHours, Forecast fc) {
+        switch (metric) {
+            case TEMP: return fc.temp;
+            case FEELS: return fc.feelsLike;
+            case HUMIDITY: return fc.humidity < 0 ? Double.NaN : fc.humidity;
+            case WIND: return fc.wind;
+            default: break;
+        }
+        int n = fc.hasForecast() ? fc.size() : 0;
+        if (n == 0) return metric == Metric.RAIN ? 0 : Double.NaN;
+        long end = windowHours > 0 ? fc.dt(0) + windowHours * 3600L : Long.MAX_VALUE;
+        double acc = metric == Metric.MAX ? Double.NEGATIVE_INFINITY : metric == Metric.MIN ? Double.POSITIVE_INFINITY : 0;
+        for (int i = 0; i < n && fc.dt(i) <= end; i++) {
+            if (metric == Metric.MAX) acc = Math.max(acc, fc.temp(i));
+            else if (metric == Metric.MIN) acc = Math.min(acc, fc.temp(i));
+            else if (Forecast.isRain(fc.description(i))) return 1;
+        }
+        return acc;
+    }
+
+    boolean triggeredBy(double value) {
+        return !Double.isNaN(value) && (below ? value < threshold : value > threshold);
+    }
+
+    /** Human readable message for a triggered rule. */
+    public String message(String cityName, double value) {
+        String cmp = below ? "<" : ">";
+        String within = windowHours > 0 ? " within the next " + windowHours + "h" : " in the forecast";
+        switch (metric) {
+            case TEMP:
+                return String.format("Temp Alert: %s current %.1f°C %s %.1f°C", cityName, value, cmp, threshold);
+            case FEELS:
+                return String.format("Feels-like Alert: %s feels like %.1f°C %s %.1f°C", cityName, value, cmp, threshold);
+            case HUMIDITY:
+                return String.format("Humidity Alert: %s humidity %.0f%% %s %.0f%%", cityName, value, cmp, threshold);
+            case WIND:
+                return String.format("Wind Alert: %s wind %.1f m/s %s %.1f m/s", cityName, value, cmp, threshold);
+            case MAX:
+                return String.format("Forecast Alert: %s high of %.1f°C %s %.1f°C%s.", cityName, value, cmp, threshold, within);
+            case MIN:
+                return String.format("Forecast Alert: %s low of %.1f°C %s %.1f°C%s.", cityName, value, cmp, threshold, within);
+            default:
+                return windowHours > 0
+                        ? String.format("Rain Alert: Rain expected in %s within the next %dh.", cityName, windowHours)
+                        : String.format("Rain Alert: Rain expected in %s in the forecast.", cityName);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.weather;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled alert rules indexed by metric so evaluation only touches relevant thresholds.
+ * Rules are grouped into buckets of (metric, forecast window, direction); each bucket holds
+ * its thresholds sorted, so the triggered rules of a bucket are one contiguous range found
+ * by binary search. Rules scoped to a city live in that city's own buckets, looked up by
+ * canonical city (CityResolver.cacheKey), so "chennai:" rules also apply to "Chennai,IN".
+ * The rules are immutable; rebuild after the rule set changes. Scopes are re-resolved
+ * whenever CityResolver learns a spelling or location.
+ */
+public final class AlertRuleIndex {
+
+    /** Receives each triggered rule id (its position in the list given to build) and the metric value. */
+    public interface Sink {
+        void fired(int ruleId, double value);
+    }
+
+    private static final class Bucket {
+        final int slot;          // which metric value this bucket compares against
+        final boolean below;
+        final double[] thresholds;
+        final int[] ids;
+
+        Bucket(int slot, boolean below, double[] thresholds, int[] ids) {
+            this.slot = slot;
+            this.below = below;
+            this.thresholds = thresholds;
+            this.ids = ids;
+        }
+    }
+
+    private final AlertRule[] rules;
+    // distinct (metric, window) pairs; evaluation computes each at most once per forecast
+    private final AlertRule.Metric[] slotMetric;
+    private final int[] slotWindow;
+    private final int[] ruleSlot;
+    private final Bucket[] global;
+    private final Map<String, Bucket[]> byCity;  // by scope as written
+    private volatile Scopes scopes;
+
+    /** byCity re-keyed by canonical city, as the resolver answered at one version. */
+    private static final class Scopes {
+        final int version;
+        final Map<String, Bucket[]> byKey;
+
+        Scopes(int version, Map<String, Bucket[]> byKey) {
+            this.version = version;
+            this.byKey = byKey;
+        }
+    }
+
+    private AlertRuleIndex(AlertRule[] rules, AlertRule.Metric[] slotMetric, int[] slotWindow,
+                           Bucket[] global, Map<String, Bucket[]> byCity) {
+        this.rules = rules;
+        this.slotMetric = slotMetric;
+        this.slotWindow = slotWindow;
+        this.global = global;
+        this.byCity = byCity;
+        this.ruleSlot = new int[rules.length];
+        Arrays.fill(ruleSlot, -1);
+        for (Bucket[] scope : byCity.values()) for (Bucket b : scope) for (int id : b.ids) ruleSlot[id] = b.slot;
+        for (Bucket b : global) for (int id : b.ids) ruleSlot[id] = b.slot;
+    }
+
+    /** Builds an index; null entries (rules that failed to compile) are skipped but keep their id. */
+    public static AlertRuleIndex build(List<AlertRule> rules) {
+        AlertRule[] all = rules.toArray(new AlertRule[0]);
+        Map<String, Integer> slots = new HashMap<>();
+        List<AlertRule.Metric> slotMetric = new ArrayList<>();
+        List<Integer> slotWindow = new ArrayList<>();
+        // scope ("" = global) -> bucket key -> rule ids
+        Map<String, Map<String, List<Integer>>> groups = new HashMap<>();
+        for (int id = 0; id < all.length; id++) {
+            AlertRule r = all[id];
+            if (r == null) continue;
+            String slotKey = r.metric + "@" + r.windowHours;
+            Integer slot = slots.get(slotKey);
+            if (slot == null) {
+                slot = slotMetric.size();
+                slots.put(slotKey, slot);
+                slotMetric.add(r.metric);
+                slotWindow.add(r.windowHours);
+            }
+            String scope = r.city == null ? "" : r.city;
+            groups.computeIfAbsent(scope, k -> new HashMap<>())
+                    .computeIfAbsent(slot + (r.below ? "<" : ">"), k -> new ArrayList<>())
+                    .add(id);
+        }
+
+        Bucket[] global = new Bucket[0];
+        Map<String, Bucket[]> byCity = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Integer>>> scope : groups.entrySet()) {
+            List<Bucket> buckets = new ArrayList<>();
+            for (List<Integer> ids : scope.getValue().values()) {
+                buckets.add(bucket(all, ids, slots));
+            }
+            Bucket[] arr = buckets.toArray(new Bucket[0]);
+            if (scope.getKey().isEmpty()) global = arr;
+            else byCity.put(scope.getKey(), arr);
+        }
+
+        int[] windows = new int[slotWindow.size()];
+        for (int i = 0; i < windows.length; i++) windows[i] = slotWindow.get(i);
+        return new AlertRuleIndex(all, slotMetric.toArray(new AlertRule.Metric[0]), windows, global, byCity);
+    }
+
+    private static Bucket bucket(AlertRule[] all, List<Integer> ids, Map<String, Integer> slots) {
+        Integer[] order = ids.toArray(new Integer[0]);
+        Arrays.sort(order, (a, b) -> Double.compare(all[a].threshold, all[b].threshold));
+        double[] thresholds = new double[order.length];
+        int[] sortedIds = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            thresholds[i] = all[order[i]].threshold;
+            sortedIds[i] = order[i];
+        }
+        AlertRule first = all[order[0]];
+        return new Bucket(slots.get(first.metric + "@" + first.windowHours), first.below, thresholds, sortedIds);
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    public AlertRule rule(int id) {
+        return rules[id];
+    }
+
+    public int slots() {
+        return slotMetric.length;
+    }
+
+    /** Metric slot a rule reads, or -1 for a rule that did not compile. */
+    public int slotOf(int ruleId) {
+        return ruleSlot[ruleId];
+    }
+
+    /** Every metric value the index can compare against, by slot. */
+    public double[] values(Forecast fc) {
+        double[] values = new double[slotMetric.length];
+        for (int s = 0; s < values.length; s++) values[s] = AlertRule.value(slotMetric[s], slotWindow[s], fc);
+        return values;
+    }
+
+    /**
+     * Re-evaluates only the buckets whose metric slot changed: their rules are cleared
+     * from `fired` and the ones that trigger on the new values are set again.
+     * Rules reading unchanged slots keep whatever state `fired` already had.
+     */
+    public void evaluateChanged(String cityKey, double[] values, boolean[] changed, BitSet fired) {
+        evaluateChanged(global, values, changed, fired);
+        Bucket[] local = local(cityKey);
+        if (local != null) evaluateChanged(local, values, changed, fired);
+    }
+
+    private static void evaluateChanged(Bucket[] buckets, double[] values, boolean[] changed, BitSet fired) {
+        for (Bucket b : buckets) {
+            if (!changed[b.slot]) continue;
+            for (int id : b.ids) fired.clear(id);
+            double v = values[b.slot];
+            if (Double.isNaN(v)) continue;
+            if (b.below) {
+                for (int i = upperBound(b.thresholds, v); i < b.ids.length; i++) fired.set(b.ids[i]);
+            } else {
+                int end = lowerBound(b.thresholds, v);
+                for (int i = 0; i < end; i++) fired.set(b.ids[i]);
+            }
+        }
+    }
+
+    /** Evaluates global rules and the rules scoped to cityKey (a CityResolver.cacheKey) against a forecast. */
+    public void evaluate(String cityKey, Forecast fc, Sink sink) {
+        double[] values = new double[slotMetric.length];
+        boolean[] known = new boolean[slotMetric.length];
+        evaluate(global, fc, values, known, sink);
+        Bucket[] local = local(cityKey);
+        if (local != null) evaluate(local, fc, values, known, sink);
+    }
+
+    // Buckets of every scope that resolves to cityKey; scopes naming the same city are merged
+    private Bucket[] local(String cityKey) {
+        if (byCity.isEmpty()) return null;
+        Scopes s = scopes;
+        int version = CityResolver.version();
+        if (s == null || s.version != version) {
+            Map<String, Bucket[]> byKey = new HashMap<>();
+            for (Map.Entry<String, Bucket[]> e : byCity.entrySet()) {
+                byKey.merge(CityResolver.cacheKey(e.getKey()), e.getValue(), (a, b) -> {
+                    Bucket[] both = Arrays.copyOf(a, a.length + b.length);
+                    System.arraycopy(b, 0, both, a.length, b.length);
+                    return both;
+                });
+            }
+            s = new Scopes(version, byKey);
+            scopes = s;
+        }
+        return s.byKey.get(cityKey);
+    }
+
+    private void evaluate(Bucket[] buckets, Forecast fc, double[] values, boolean[] known, Sink sink) {
+        for (Bucket b : buckets) {
+            if (!known[b.slot]) {
+                values[b.slot] = AlertRule.value(slotMetric[b.slot], slotWindow[b.slot], fc);
+                known[b.slot] = true;
+            }
+            double v = values[b.slot];
+            if (Double.isNaN(v)) continue;
+            if (b.below) {
+                // value < threshold: every threshold above v
+                for (int i = upperBound(b.thresholds, v); i < b.ids.length; i++) sink.fired(b.ids[i], v);
+            } else {
+                // value > threshold: every threshold below v
+                int end = lowerBound(b.thresholds, v);
+                for (int i = 0; i < end; i++) sink.fired(b.ids[i], v);
+            }
+        }
+    }
+
+    // first index with a[i] > v
+    private static int upperBound(double[] a, double v) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= v) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // first index with a[i] >= v
+    private static int lowerBound(double[] a, double v) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < v) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
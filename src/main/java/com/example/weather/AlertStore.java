@@ -0,0 +1,195 @@
+package com.example.weather;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Log-structured persistence for alert rules.
+ * Each change is one appended line in alerts.log ("+id<TAB>rule" or "-id"); the full set
+ * is only rewritten during compaction, which writes a snapshot to a temp file and atomically
+ * renames it over alerts.txt before truncating the log. Replaying the log on top of the
+ * snapshot is idempotent, so a crash at any point loses at most the change being written.
+ * Rules get stable numeric ids and are deduplicated through a hash index; the snapshot starts
+ * with "#next<TAB>n", so an id freed by a removal is never handed out again after compaction.
+ */
+public class AlertStore {
+    private static final String NEXT = "#next\t";
+
+    private final Path snapshot;
+    private final Path log;
+    private final int compactAfter;
+
+    private final LinkedHashMap<Integer, String> byId = new LinkedHashMap<>();
+    private final HashMap<String, Integer> byRule = new HashMap<>();
+    private int nextId = 1;
+    private int logRecords;
+    private Writer logWriter;
+
+    public AlertStore(Path snapshot, Path log, int compactAfter) {
+        this.snapshot = snapshot;
+        this.log = log;
+        this.compactAfter = compactAfter;
+        load();
+    }
+
+    private void load() {
+        // snapshot: "#next<TAB>n", then "id<TAB>rule", or a bare rule per line (the original alerts.txt format)
+        List<String> legacy = new ArrayList<>();
+        if (Files.exists(snapshot)) {
+            try (BufferedReader r = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty()) continue;
+                    if (line.startsWith(NEXT)) {
+                        Integer next = parseId(line.substring(NEXT.length()));
+                        if (next != null) nextId = Math.max(nextId, next);
+                        continue;
+                    }
+                    int tab = line.indexOf('\t');
+                    Integer id = tab > 0 ? parseId(line.substring(0, tab)) : null;
+                    if (id != null) put(id, line.substring(tab + 1).trim());
+                    else legacy.add(line);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to load alerts: " + e.getMessage());
+            }
+        }
+        if (Files.exists(log)) {
+            try (BufferedReader r = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    logRecords++;
+                    if (line.startsWith("+")) {
+                        int tab = line.indexOf('\t');
+                        Integer id = tab > 1 ? parseId(line.substring(1, tab)) : null;
+                        if (id != null) put(id, line.substring(tab + 1).trim());
+                    } else if (line.startsWith("-")) {
+                        Integer id = parseId(line.substring(1));
+                        if (id != null) delete(id);
+                    }
+                    // anything else is a torn write from a crash; skip it
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to replay alert log: " + e.getMessage());
+            }
+        }
+        for (String rule : legacy) {
+            if (!byRule.containsKey(rule)) put(nextId, rule);
+        }
+        if (!legacy.isEmpty()) compact();
+    }
+
+    private static Integer parseId(String s) {
+        try {
+            return Integer.valueOf(s.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void put(int id, String rule) {
+        if (rule.isEmpty()) return;
+        String old = byId.put(id, rule);
+        if (old != null) byRule.remove(old);
+        byRule.put(rule, id);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    private void delete(int id) {
+        String old = byId.remove(id);
+        if (old != null) byRule.remove(old);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    /** Adds a rule and returns its id, or -1 if it already exists. */
+    public synchronized int add(String rule) {
+        if (byRule.containsKey(rule)) return -1;
+        int id = nextId;
+        put(id, rule);
+        append("+" + id + "\t" + rule);
+        return id;
+    }
+
+    public synchronized boolean remove(int id) {
+        if (!byId.containsKey(id)) return false;
+        delete(id);
+        append("-" + id);
+        return true;
+    }
+
+    public synchronized boolean contains(String rule) {
+        return byRule.containsKey(rule);
+    }
+
+    /** Rules by id, in the order they were added. */
+    public synchronized Map<Integer, String> entries() {
+        return new LinkedHashMap<>(byId);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private void append(String record) {
+        try {
+            if (logWriter == null) {
+                logWriter = new BufferedWriter(new OutputStreamWriter(
+                        Files.newOutputStream(log, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                        StandardCharsets.UTF_8));
+            }
+            logWriter.write(record);
+            logWriter.write('\n');
+            logWriter.flush();
+            logRecords++;
+        } catch (IOException e) {
+            System.err.println("Failed to save alerts: " + e.getMessage());
+        }
+        // rewrite once the log holds more records than live rules (and at least compactAfter)
+        if (logRecords >= Math.max(compactAfter, byId.size())) compact();
+    }
+
+    /** Writes the live rules to a new snapshot, renames it into place and truncates the log. */
+    public synchronized void compact() {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+                 Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                // the high-water mark survives even when the highest ids were removed
+                w.write(NEXT + nextId);
+                w.write('\n');
+                for (Map.Entry<Integer, String> e : byId.entrySet()) {
+                    w.write(e.getKey() + "\t" + e.getValue());
+                    w.write('\n');
+                }
+                w.flush();
+                out.getFD().sync();
+            }
+            try {
+                Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+            closeLog();
+            Files.write(log, new byte[0]);
+            logRecords = 0;
+        } catch (IOException e) {
+            System.err.println("Failed to compact alerts: " + e.getMessage());
+        }
+    }
+
+    private void closeLog() throws IOException {
+        if (logWriter != null) {
+            logWriter.close();
+            logWriter = null;
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            closeLog();
+        } catch (IOException ignored) {}
+    }
+}
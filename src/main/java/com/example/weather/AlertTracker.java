@@ -0,0 +1,122 @@
+package com.example.weather;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Edge-triggered alert evaluation for repeated polling of the same cities.
+ * Remembers, per city, the metric values and the set of rules that were firing at the
+ * last check. A new check only re-evaluates rules whose metric value changed and reports
+ * just the transitions: rules that started firing and rules that cleared.
+ */
+public class AlertTracker {
+
+    /** One state change of one rule for one city. */
+    public static final class Transition {
+        public final boolean fired;
+        public final AlertRule rule;
+        public final String message;
+
+        Transition(boolean fired, AlertRule rule, String message) {
+            this.fired = fired;
+            this.rule = rule;
+            this.message = message;
+        }
+    }
+
+    private static final class State {
+        final AlertRuleIndex index;
+        final int resolverVersion;  // which city scopes applied depends on what CityResolver knew
+        final double[] values;
+        final BitSet fired;
+
+        State(AlertRuleIndex index, int resolverVersion, double[] values, BitSet fired) {
+            this.index = index;
+            this.resolverVersion = resolverVersion;
+            this.values = values;
+            this.fired = fired;
+        }
+    }
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong slotsSkipped = new AtomicLong();
+    private final AtomicLong firedCount = new AtomicLong();
+    private final AtomicLong clearedCount = new AtomicLong();
+
+    /** Evaluates city against the rule index and returns only the rules whose state changed. */
+    public List<Transition> check(String city, Forecast fc, AlertRuleIndex index) {
+        String key = CityResolver.cacheKey(city);
+        int version = CityResolver.version();
+        List<Transition> out = new ArrayList<>();
+        checks.incrementAndGet();
+        states.compute(key, (k, prev) -> {
+            double[] values = index.values(fc);
+            boolean[] changed = new boolean[values.length];
+            BitSet before;
+            boolean full = prev == null || prev.index != index || prev.resolverVersion != version;
+            if (full) {
+                // first check, the rules changed, or a city scope may now (or no longer) name this
+                // city: evaluate everything, but carry over which rules (by text) were already
+                // firing so they are not reported again
+                Arrays.fill(changed, true);
+                before = prev == null ? new BitSet() : remap(prev, index);
+            } else {
+                before = prev.fired;
+                int skipped = 0;
+                for (int s = 0; s < values.length; s++) {
+                    changed[s] = Double.compare(values[s], prev.values[s]) != 0;
+                    if (!changed[s]) skipped++;
+                }
+                slotsSkipped.addAndGet(skipped);
+            }
+            // a full pass starts empty, so rules that no longer apply to this city are cleared too
+            BitSet now = full ? new BitSet(index.size()) : (BitSet) before.clone();
+            index.evaluateChanged(k, values, changed, now);
+
+            BitSet diff = (BitSet) now.clone();
+            diff.xor(before);
+            for (int id = diff.nextSetBit(0); id >= 0; id = diff.nextSetBit(id + 1)) {
+                AlertRule rule = index.rule(id);
+                if (now.get(id)) {
+                    firedCount.incrementAndGet();
+                    out.add(new Transition(true, rule, rule.message(city, values[index.slotOf(id)])));
+                } else {
+                    clearedCount.incrementAndGet();
+                    out.add(new Transition(false, rule, String.format("Alert cleared: %s for %s", rule.text, city)));
+                }
+            }
+            return new State(index, version, values, now);
+        });
+        return out;
+    }
+
+    private static BitSet remap(State prev, AlertRuleIndex index) {
+        Set<String> firing = new HashSet<>();
+        for (int id = prev.fired.nextSetBit(0); id >= 0; id = prev.fired.nextSetBit(id + 1)) {
+            firing.add(prev.index.rule(id).text);
+        }
+        BitSet mapped = new BitSet(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            AlertRule r = index.rule(id);
+            if (r != null && firing.contains(r.text)) mapped.set(id);
+        }
+        return mapped;
+    }
+
+    public void forget(String city) {
+        states.remove(CityResolver.cacheKey(city));
+    }
+
+    public String stats() {
+        return String.format("checks=%d, unchanged metrics skipped=%d, fired=%d, cleared=%d, tracked cities=%d",
+                checks.get(), slotsSkipped.get(), firedCount.get(), clearedCount.get(), states.size());
+    }
+}
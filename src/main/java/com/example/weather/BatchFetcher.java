@@ -0,0 +1,188 @@
+package com.example.weather;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fetches current weather and forecast for many cities concurrently.
+ * Cities are processed on a bounded pool; for each city the two upstream calls
+ * run in parallel and the pair must finish within the per-city timeout.
+ * Every city gets its own Result, so one failure never aborts the batch.
+ */
+public class BatchFetcher {
+
+    /** Outcome for one city: combined JSON on success, an error message otherwise. */
+    public static final class Result {
+        public final String city;
+        public final String json;
+        public final String error;
+        public final long millis;
+        public final boolean fromCache;
+        public final boolean stale;
+        public final String upstreamError;  // set when this is last-known data served because upstream failed
+        private final CacheDB.Entry entry;
+        private Forecast forecast;
+
+        Result(String city, String json, String error, long millis) {
+            this(city, json, error, millis, false, false, null, null);
+        }
+
+        Result(String city, String json, Forecast forecast, long millis) {
+            this(city, json, null, millis, false, false, null, null);
+            this.forecast = forecast;
+        }
+
+        private Result(String city, String json, String error, long millis, boolean fromCache, boolean stale,
+                       CacheDB.Entry entry, String upstreamError) {
+            this.city = city;
+            this.json = json;
+            this.error = error;
+            this.millis = millis;
+            this.fromCache = fromCache;
+            this.stale = stale;
+            this.entry = entry;
+            this.upstreamError = upstreamError;
+        }
+
+        static Result cached(String city, CacheDB.Entry entry, boolean stale) {
+            return new Result(city, entry.json, null, 0, true, stale, entry, null);
+        }
+
+        /** Last known cache entry standing in for a failed fetch. */
+        static Result fallback(Result failed, CacheDB.Entry entry) {
+            return new Result(failed.city, entry.json, null, failed.millis, true, true, entry, failed.error);
+        }
+
+        /** Same fetch result, now backed by the cache entry it was stored as. */
+        Result stored(CacheDB.Entry entry) {
+            Result r = new Result(city, json, error, millis, fromCache, stale, entry, upstreamError);
+            r.forecast = forecast;
+            return r;
+        }
+
+        /** Version of the cache entry behind this result (its fetch time), or 0 if it was not stored. */
+        public long fetchedAt() {
+            return entry != null ? entry.fetchedAt : 0;
+        }
+
+        public boolean ok() {
+            return error == null;
+        }
+
+        /** Parsed forecast; shared with the cache entry when there is one, so it is parsed once. */
+        public Forecast forecast() {
+            if (forecast == null) forecast = entry != null ? entry.forecast() : Forecast.parse(json);
+            return forecast;
+        }
+    }
+
+    private static final Histogram FETCH = Metrics.timer("fetch");
+    private static final Histogram PARSE = Metrics.timer("parse");
+
+    // Upstream calls of a single city; unbounded because the callers are already bounded
+    private static final ExecutorService IO = Executors.newCachedThreadPool(daemonThreads("weather-io"));
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Fetches one city, running the current-weather and forecast requests in parallel. */
+    public static Result fetchOne(String city, long timeoutMillis) {
+        long start = System.nanoTime();
+        try {
+            return fetchOne(city, timeoutMillis, start);
+        } finally {
+            FETCH.recordSince(start);
+        }
+    }
+
+    private static Result fetchOne(String city, long timeoutMillis, long start) {
+        Future<Optional<String>> current = IO.submit(() -> WeatherClient.fetchCurrentByCity(city));
+        Future<Optional<String>> forecast = IO.submit(() -> WeatherClient.fetch5DayForecastByCity(city));
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            Optional<String> c = current.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!c.isPresent()) {
+                forecast.cancel(true);
+                return failed(city, "Failed to fetch current weather.", start);
+            }
+            Optional<String> f = forecast.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!f.isPresent()) return failed(city, "Failed to fetch forecast.", start);
+            // read both buffered bodies into the typed model; the combined text is only kept for the cache
+            long parseStart = System.nanoTime();
+            Forecast parsed = ForecastReader.read(new StringReader(c.get()), new StringReader(f.get()));
+            PARSE.recordSince(parseStart);
+            String combined = "{\"current\":" + c.get() + ",\"forecast\":" + f.get() + "}";
+            return new Result(city, combined, parsed, elapsedMillis(start));
+        } catch (IOException | IllegalStateException e) {
+            return failed(city, "Invalid response: " + e.getMessage(), start);
+        } catch (TimeoutException e) {
+            current.cancel(true);
+            forecast.cancel(true);
+            return failed(city, "Timed out after " + timeoutMillis + " ms.", start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            current.cancel(true);
+            forecast.cancel(true);
+            return failed(city, "Interrupted.", start);
+        } catch (ExecutionException e) {
+            return failed(city, "Fetch error: " + e.getCause(), start);
+        }
+    }
+
+    /**
+     * Fetches all cities with at most `parallelism` cities in flight.
+     * Results are returned in input order; successful ones are also written to CacheDB.
+     */
+    public static List<Result> fetchAll(List<String> cities, int parallelism, long timeoutMillis) {
+        return runAll(cities, parallelism, city -> WeatherService.fetch(city, timeoutMillis));
+    }
+
+    /** Like fetchAll, but through WeatherService.lookup: cached entries are used, only misses go upstream. */
+    public static List<Result> lookupAll(List<String> cities, int parallelism) {
+        return runAll(cities, parallelism, WeatherService::lookup);
+    }
+
+    private static List<Result> runAll(List<String> cities, int parallelism, Function<String, Result> task) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), daemonThreads("weather-batch"));
+        try {
+            List<Future<Result>> futures = new ArrayList<>(cities.size());
+            for (String city : cities) {
+                futures.add(pool.submit(() -> task.apply(city)));
+            }
+            List<Result> results = new ArrayList<>(cities.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new Result(cities.get(i), null, "Interrupted.", 0));
+                } catch (ExecutionException e) {
+                    results.add(new Result(cities.get(i), null, "Fetch error: " + e.getCause(), 0));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Result failed(String city, String error, long start) {
+        return new Result(city, null, error, elapsedMillis(start));
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.weather;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports many cities at once, either the full cached 3-hourly forecast or the stored
+ * observation history, into one CSV file or one file per city.
+ * Cities are exported in parallel, each streaming through its own CsvWriter. For a single
+ * output file every city is written to a temporary part first, and the parts are then
+ * appended in input order with FileChannel.transferTo; gzip parts are complete gzip members,
+ * which concatenate into one valid .gz file without recompressing.
+ */
+public class BulkExporter {
+    private static final int BUFFER = 64 * 1024;
+    private static final String FORECAST_HEADER = "city,time_utc,temp,feels_like,humidity,wind,description";
+    private static final String HISTORY_HEADER = "city,time_utc,temp,humidity,wind,condition";
+
+    /** What to export per city. */
+    public enum Source { FORECAST, HISTORY }
+
+    /** Export options; history bounds are epoch seconds, [from, to). */
+    public static final class Options {
+        Source source = Source.FORECAST;
+        long from;
+        long to = Long.MAX_VALUE;
+        boolean gzip;
+        boolean perCity;
+        int parallelism = Config.BATCH_PARALLELISM;
+
+        public Options history(long from, long to) {
+            this.source = Source.HISTORY;
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        public Options gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public Options perCity(boolean perCity) {
+            this.perCity = perCity;
+            return this;
+        }
+
+        public Options parallelism(int parallelism) {
+            this.parallelism = Math.max(1, parallelism);
+            return this;
+        }
+    }
+
+    /** Rows written and files produced by one export. */
+    public static final class Summary {
+        public final long rows;
+        public final int cities;
+        public final List<File> files;
+        public final long millis;
+
+        Summary(long rows, int cities, List<File> files, long millis) {
+            this.rows = rows;
+            this.cities = cities;
+            this.files = files;
+            this.millis = millis;
+        }
+
+        public double rowsPerSecond() {
+            return millis == 0 ? rows * 1000.0 : rows * 1000.0 / millis;
+        }
+    }
+
+    /**
+     * Exports every city. With perCity, `target` is a directory receiving one file per city;
+     * otherwise it is the single output file. Cities without data contribute no rows.
+     */
+    public static Summary export(List<String> cities, File target, Options opt) throws IOException {
+        long start = System.currentTimeMillis();
+        String ext = ".csv" + (opt.gzip ? ".gz" : "");
+        File partsDir = null;
+        List<File> outputs = new ArrayList<>(cities.size());
+        if (opt.perCity) {
+            if (!target.isDirectory() && !target.mkdirs()) throw new IOException("Cannot create " + target);
+            String suffix = (opt.source == Source.HISTORY ? "_history" : "_forecast") + ext;
+            for (String c : cities) outputs.add(new File(target, safeName(c) + suffix));
+        } else {
+            File parent = target.getAbsoluteFile().getParentFile();
+            partsDir = Files.createTempDirectory(parent.toPath(), ".export").toFile();
+            for (int i = 0; i < cities.size(); i++) outputs.add(new File(partsDir, i + ext));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(opt.parallelism, BatchFetcher.daemonThreads("weather-export"));
+        long rows = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>(cities.size());
+            for (int i = 0; i < cities.size(); i++) {
+                String city = cities.get(i);
+                File out = outputs.get(i);
+                // each per-city file gets its own header; single-file parts get theirs from writeHeader
+                boolean header = opt.perCity;
+                futures.add(pool.submit(() -> writeCity(city, out, opt, header)));
+            }
+            for (Future<Long> f : futures) rows += get(f);
+            if (!opt.perCity) concat(target, opt, outputs);
+        } finally {
+            pool.shutdownNow();
+            if (partsDir != null) {
+                // a failed city leaves the others running; let them stop before their parts are removed
+                try {
+                    pool.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (File part : outputs) part.delete();
+                partsDir.delete();
+            }
+        }
+
+        List<File> files = outputs;
+        if (!opt.perCity) {
+            files = new ArrayList<>();
+            files.add(target);
+        }
+        return new Summary(rows, cities.size(), files, System.currentTimeMillis() - start);
+    }
+
+    private static long get(Future<Long> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Export failed: " + cause, cause);
+        }
+    }
+
+    private static long writeCity(String city, File file, Options opt, boolean header) throws IOException {
+        try (CsvWriter w = new CsvWriter(open(file, opt.gzip), BUFFER)) {
+            if (header) writeHeader(w, opt.source);
+            long before = w.rows();
+            if (opt.source == Source.HISTORY) {
+                HistoryStore.scan(city, opt.from, opt.to, o -> {
+                    try {
+                        w.field(city).dateTime(o.ts).field(o.temp);
+                        if (o.humidity >= 0) w.field(o.humidity);
+                        else w.field("");
+                        w.field(o.wind).field(o.condition).endRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                Optional<CacheDB.Entry> entry = CacheDB.getEntry(city);
+                if (entry.isPresent()) writeForecast(w, city, entry.get().forecast());
+            }
+            return w.rows() - before;
+        }
+    }
+
+    /** Writes every 3-hourly forecast entry of one city as rows. */
+    static void writeForecast(CsvWriter w, String city, Forecast fc) throws IOException {
+        if (fc == null || !fc.hasForecast()) return;
+        for (int i = 0; i < fc.size(); i++) {
+            w.field(city).dateTime(fc.dt(i)).field(fc.temp(i)).field(fc.feelsLike(i));
+            if (fc.humidity(i) >= 0) w.field(fc.humidity(i));
+            else w.field("");
+            w.field(fc.wind(i)).field(fc.description(i)).endRow();
+        }
+    }
+
+    private static void writeHeader(CsvWriter w, Source source) throws IOException {
+        for (String col : (source == Source.HISTORY ? HISTORY_HEADER : FORECAST_HEADER).split(",")) w.field(col);
+        w.endRow();
+    }
+
+    private static WritableByteChannel open(File file, boolean gzip) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        if (!gzip) return fos.getChannel();
+        return Channels.newChannel(new GZIPOutputStream(fos, BUFFER));
+    }
+
+    // Header part first, then every city part in input order, appended channel to channel
+    private static void concat(File target, Options opt, List<File> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            File header = new File(parts.isEmpty() ? target.getParentFile() : parts.get(0).getParentFile(), "header");
+            try (CsvWriter w = new CsvWriter(open(header, opt.gzip), 1024)) {
+                writeHeader(w, opt.source);
+            }
+            List<File> all = new ArrayList<>(parts.size() + 1);
+            all.add(header);
+            all.addAll(parts);
+            for (File part : all) {
+                try (FileChannel in = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+                    long pos = 0, size = in.size();
+                    while (pos < size) pos += in.transferTo(pos, size - pos, out);
+                }
+            }
+            header.delete();
+        }
+    }
+
+    static String safeName(String city) {
+        return city.trim().toLowerCase().replaceAll("\\s+", "_");
+    }
+}
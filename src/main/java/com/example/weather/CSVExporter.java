@@ -1,13 +1,8 @@
 package com.example.weather;
 
-import com.google.gson.*;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 public class CSVExporter {
 
@@ -17,62 +12,39 @@ public class CSVExporter {
      */
     public static String export(String city, String combinedJson) {
         if (combinedJson == null) return "No data provided.";
-
         try {
-            JsonObject root = JsonParser.parseString(combinedJson).getAsJsonObject();
-            JsonObject forecastObj = root.getAsJsonObject("forecast");
-
-            if (forecastObj == null || !forecastObj.has("list")) {
-                return "No forecast data to export.";
-            }
-
-            JsonArray list = forecastObj.getAsJsonArray("list");
-
-            // Aggregate min/max temperatures per date
-            Map<String, double[]> daily = new LinkedHashMap<>();
-
-            for (JsonElement e : list) {
-                try {
-                    JsonObject item = e.getAsJsonObject();
-                    long dt = item.get("dt").getAsLong();
-
-                    String date = Instant.ofEpochSecond(dt)
-                            .atZone(ZoneId.systemDefault())
-                            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            return export(city, Forecast.parse(combinedJson));
+        } catch (Exception ex) {
+            return "Export failed: invalid forecast data.";
+        }
+    }
 
-                    JsonObject main = item.getAsJsonObject("main");
-                    double temp = main.get("temp").getAsDouble();
+    /** Export the per-day min/max already aggregated in the forecast. */
+    public static String export(String city, Forecast fc) {
+        return export(city, fc, null);
+    }
 
-                    if (!daily.containsKey(date)) daily.put(date, new double[]{temp, temp});
-                    else {
-                        double[] mm = daily.get(date);
-                        mm[0] = Math.min(mm[0], temp);
-                        mm[1] = Math.max(mm[1], temp);
-                    }
-                } catch (Exception ex) {
-                    // skip malformed list entry
-                }
-            }
+    /** Same as export(city, fc) but writes into dir (current directory when null). */
+    public static String export(String city, Forecast fc, File dir) {
+        if (fc == null) return "No data provided.";
+        if (!fc.hasForecast()) {
+            return "No forecast data to export.";
+        }
 
-            // Create CSV file
-            String safeCity = city.trim().toLowerCase().replaceAll("\\s+", "_");
-            String fileName = safeCity + "_forecast.csv";
-            try (FileWriter fw = new FileWriter(fileName)) {
-                fw.write("date,min_temp,max_temp\n");
+        // Create CSV file
+        String safeCity = city.trim().toLowerCase().replaceAll("\\s+", "_");
+        String fileName = safeCity + "_forecast.csv";
+        try (FileWriter fw = new FileWriter(new File(dir, fileName))) {
+            fw.write("date,min_temp,max_temp\n");
 
-                int count = 0;
-                for (Map.Entry<String, double[]> en : daily.entrySet()) {
-                    if (count++ >= 5) break; // limit to 5 days
-                    fw.write(String.format("%s,%.2f,%.2f\n", en.getKey(), en.getValue()[0], en.getValue()[1]));
-                }
+            int shown = Math.min(5, fc.days()); // limit to 5 days
+            for (int d = 0; d < shown; d++) {
+                fw.write(String.format("%s,%.2f,%.2f\n", fc.dayLabel(d), fc.dayMin(d), fc.dayMax(d)));
             }
-
-            return "CSV exported: " + fileName;
-
         } catch (IOException ex) {
             return "Failed to export CSV: " + ex.getMessage();
-        } catch (Exception ex) {
-            return "Export failed: invalid forecast data.";
         }
+
+        return "CSV exported: " + fileName;
     }
 }
@@ -3,73 +3,370 @@ package com.example.weather;
 import java.sql.*;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CacheDB {
-    private static final String URL = "jdbc:sqlite:weather_cache.db";
-    private static final long TTL_SECONDS = 60 * 30; // 30 minutes cache TTL
+    // Fresh for the soft TTL; served stale (while revalidating) until the hard TTL
+    private static final long SOFT_TTL_SECONDS = Config.SOFT_TTL_SECONDS;
+    private static final long HARD_TTL_SECONDS = Math.max(Config.HARD_TTL_SECONDS, SOFT_TTL_SECONDS);
+
+    // Row formats: JSON text in `json`, or ForecastCodec bytes in `data`
+    static final int FORMAT_JSON = 0;
+    static final int FORMAT_BINARY = 1;
+    private static final int SCHEMA_VERSION = 2;
+
+    private static final String SELECT_SQL = "SELECT json, data, format, fetched_at FROM cache WHERE city = ?";
+    private static final String UPSERT_SQL = "INSERT INTO cache(city,json,data,format,fetched_at) VALUES(?,?,?,?,?) " +
+            "ON CONFLICT(city) DO UPDATE SET json=excluded.json, data=excluded.data, format=excluded.format, " +
+            "fetched_at=excluded.fetched_at";
+
+    private static volatile SqlitePool pool;
+
+    /**
+     * A cached row and when it was fetched (epoch seconds).
+     * Holds the combined JSON for text rows, or only the decoded Forecast for binary rows.
+     */
+    public static final class Entry {
+        public final String json;
+        public final long fetchedAt;
+        private final int weight;
+        private volatile Forecast forecast;
+
+        Entry(String json, long fetchedAt) {
+            this.json = json;
+            this.fetchedAt = fetchedAt;
+            this.weight = 2 * json.length();
+        }
+
+        Entry(Forecast forecast, int encodedSize, long fetchedAt) {
+            this.json = null;
+            this.fetchedAt = fetchedAt;
+            this.forecast = forecast;
+            // decoded arrays take roughly 4x the encoded bytes
+            this.weight = 4 * encodedSize;
+        }
+
+        /** Parsed form, built on first use and then shared by every reader of this entry. */
+        public Forecast forecast() {
+            Forecast f = forecast;
+            if (f == null) {
+                f = Forecast.parse(json);
+                forecast = f;
+            }
+            return f;
+        }
+
+        public long ageSeconds(long nowSeconds) {
+            return nowSeconds - fetchedAt;
+        }
+
+        public boolean isFresh(long nowSeconds) {
+            return ageSeconds(nowSeconds) <= SOFT_TTL_SECONDS;
+        }
+    }
+
+    // L1 in front of SQLite; strings are weighed at two bytes per char
+    private static final MemoryCache<Entry> memory = new MemoryCache<>(
+            Config.L1_MAX_ENTRIES, Config.L1_MAX_BYTES, e -> 64L + e.weight);
+
+    private static final LongAdder L1_HITS = Metrics.counter("cache.l1.hit");
+    private static final LongAdder SQLITE_HITS = Metrics.counter("cache.sqlite.hit");
+    private static final LongAdder MISSES = Metrics.counter("cache.miss");
+    private static final LongAdder EXPIRED = Metrics.counter("cache.expired");
+    private static final Histogram READ = Metrics.timer("cache.sqlite.read");
+    private static final Histogram WRITE = Metrics.timer("cache.sqlite.write");
+
+    /** Normalized free-text city input; cache rows themselves are keyed by CityResolver.cacheKey. */
+    public static String key(String city) {
+        return city.trim().toLowerCase();
+    }
+
+    public static MemoryCache<Entry> memory() {
+        return memory;
+    }
+
+    /** Puts an entry restored from a CacheSnapshot into L1 unless it has passed the hard TTL; returns whether it did. */
+    static boolean warm(String key, Forecast forecast, int encodedSize, long fetchedAt) {
+        long now = Instant.now().getEpochSecond();
+        if (now - fetchedAt > HARD_TTL_SECONDS) return false;
+        memory.put(key, new Entry(forecast, encodedSize, fetchedAt), fetchedAt + HARD_TTL_SECONDS + 1);
+        return true;
+    }
 
     public static void init() {
-        try (Connection c = DriverManager.getConnection(URL);
-             Statement st = c.createStatement()) {
+        init(Config.DB_PATH);
+    }
+
+    /** Opens the cache database at the given file path (no-op if already open). */
+    public static synchronized void init(String dbPath) {
+        if (pool != null) return;
+        try {
+            SqlitePool p = new SqlitePool("jdbc:sqlite:" + dbPath, Config.DB_READERS);
+            int converted = p.write(CacheDB::migrate);
+            if (converted > 0) {
+                // reclaim the space freed by dropping the JSON text
+                p.write(h -> {
+                    try (Statement st = h.connection().createStatement()) {
+                        st.execute("VACUUM");
+                    }
+                    return null;
+                });
+            }
+            pool = p;
+            Runtime.getRuntime().addShutdownHook(new Thread(CacheDB::close, "cache-db-close"));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Brings the table to the current schema (tracked in PRAGMA user_version).
+     * v0 -> v1 rebuilds the table with a nullable json column plus data/format columns.
+     * When the binary format is enabled, remaining JSON rows are re-encoded.
+     * Returns the number of rows converted to binary.
+     */
+    private static int migrate(SqlitePool.Handle h) throws SQLException {
+        Connection c = h.connection();
+        try (Statement st = c.createStatement()) {
             st.execute("CREATE TABLE IF NOT EXISTS cache (" +
                     "city TEXT PRIMARY KEY, " +
-                    "json TEXT NOT NULL, " +
+                    "json TEXT, " +
+                    "data BLOB, " +
+                    "format INTEGER NOT NULL DEFAULT 0, " +
                     "fetched_at INTEGER NOT NULL)");
+            int version;
+            try (ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+            boolean hasFormat = false;
+            try (ResultSet rs = st.executeQuery("PRAGMA table_info(cache)")) {
+                while (rs.next()) hasFormat |= "format".equals(rs.getString("name"));
+            }
+            if (version < 1 && !hasFormat) {
+                c.setAutoCommit(false);
+                try {
+                    st.execute("ALTER TABLE cache RENAME TO cache_v0");
+                    st.execute("CREATE TABLE cache (" +
+                            "city TEXT PRIMARY KEY, " +
+                            "json TEXT, " +
+                            "data BLOB, " +
+                            "format INTEGER NOT NULL DEFAULT 0, " +
+                            "fetched_at INTEGER NOT NULL)");
+                    st.execute("INSERT INTO cache(city,json,format,fetched_at) SELECT city,json,0,fetched_at FROM cache_v0");
+                    st.execute("DROP TABLE cache_v0");
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(true);
+                }
+            }
+            // v2: canonical locations and the inputs that resolve to them (see CityResolver)
+            st.execute("CREATE TABLE IF NOT EXISTS location (" +
+                    "id INTEGER PRIMARY KEY, name TEXT NOT NULL, country TEXT, lat REAL NOT NULL, lon REAL NOT NULL)");
+            st.execute("CREATE TABLE IF NOT EXISTS alias (alias TEXT PRIMARY KEY, id INTEGER NOT NULL) WITHOUT ROWID");
+            st.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+        }
+        return Config.CACHE_BINARY ? convertToBinary(c) : 0;
+    }
+
+    private static int convertToBinary(Connection c) throws SQLException {
+        int converted = 0;
+        c.setAutoCommit(false);
+        try (PreparedStatement sel = c.prepareStatement("SELECT city, json FROM cache WHERE format = " + FORMAT_JSON);
+             PreparedStatement upd = c.prepareStatement("UPDATE cache SET json = NULL, data = ?, format = " +
+                     FORMAT_BINARY + " WHERE city = ?")) {
+            try (ResultSet rs = sel.executeQuery()) {
+                while (rs.next()) {
+                    String json = rs.getString("json");
+                    try {
+                        upd.setBytes(1, ForecastCodec.encode(Forecast.parse(json)));
+                    } catch (RuntimeException e) {
+                        continue; // leave unreadable rows as text
+                    }
+                    upd.setString(2, rs.getString("city"));
+                    upd.addBatch();
+                    converted++;
+                }
+            }
+            if (converted > 0) upd.executeBatch();
+            c.commit();
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+        return converted;
+    }
+
+    public static synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    static SqlitePool pool() {
+        SqlitePool p = pool;
+        if (p == null) {
+            init();
+            p = pool;
         }
+        return p;
     }
 
+    /** Fresh (within soft TTL) JSON only; rows stored in binary form have no JSON and read as empty. */
     public static Optional<String> getCached(String city) {
-        try (Connection c = DriverManager.getConnection(URL);
-             PreparedStatement ps = c.prepareStatement("SELECT json, fetched_at FROM cache WHERE city = ?")) {
-            ps.setString(1, city.toLowerCase());
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return Optional.empty();
-                long fetched = rs.getLong("fetched_at");
-                if (Instant.now().getEpochSecond() - fetched > TTL_SECONDS) {
-                    // stale
-                    return Optional.empty();
+        long now = Instant.now().getEpochSecond();
+        Optional<Entry> e = getEntry(city);
+        if (e.isPresent() && e.get().isFresh(now) && e.get().json != null) return Optional.of(e.get().json);
+        return Optional.empty();
+    }
+
+    /** Any entry that has not passed the hard TTL, fresh or stale. */
+    public static Optional<Entry> getEntry(String city) {
+        String key = CityResolver.cacheKey(city);
+        long now = Instant.now().getEpochSecond();
+        Entry hit = memory.get(key, now);
+        if (hit != null) {
+            L1_HITS.increment();
+            return Optional.of(hit);
+        }
+        long start = System.nanoTime();
+        try {
+            return pool().read(h -> {
+                PreparedStatement ps = h.prepare(SELECT_SQL);
+                ps.setString(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        MISSES.increment();
+                        return Optional.empty();
+                    }
+                    long fetched = rs.getLong("fetched_at");
+                    if (now - fetched > HARD_TTL_SECONDS) {
+                        // expired
+                        EXPIRED.increment();
+                        return Optional.empty();
+                    }
+                    Entry e = readEntry(rs, fetched);
+                    if (e == null) {
+                        MISSES.increment();
+                        return Optional.empty();
+                    }
+                    SQLITE_HITS.increment();
+                    memory.put(key, e, fetched + HARD_TTL_SECONDS + 1);
+                    return Optional.of(e);
                 }
-                return Optional.of(rs.getString("json"));
-            }
+            });
         } catch (SQLException e) {
             System.err.println("Cache read error: " + e.getMessage());
             return Optional.empty();
+        } finally {
+            READ.recordSince(start);
         }
     }
 
-    public static void put(String city, String json) {
+    /**
+     * Last stored entry regardless of age, for when upstream is unavailable.
+     * Not promoted into L1, so normal lookups keep honouring the hard TTL.
+     */
+    public static Optional<Entry> getLastKnown(String city) {
+        String key = CityResolver.cacheKey(city);
+        try {
+            return pool().read(h -> {
+                PreparedStatement ps = h.prepare(SELECT_SQL);
+                ps.setString(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return Optional.empty();
+                    return Optional.ofNullable(readEntry(rs, rs.getLong("fetched_at")));
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Cache read error: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Binary rows decode straight into a Forecast; fall back to JSON text when the blob is unreadable
+    private static Entry readEntry(ResultSet rs, long fetched) throws SQLException {
+        if (rs.getInt("format") == FORMAT_BINARY) {
+            byte[] data = rs.getBytes("data");
+            Forecast f = ForecastCodec.decode(data);
+            if (f != null) return new Entry(f, data.length, fetched);
+        }
+        String json = rs.getString("json");
+        return json == null ? null : new Entry(json, fetched);
+    }
+
+    public static Entry put(String city, String json) {
+        return put(city, json, null);
+    }
+
+    /**
+     * Stores a fetch result; an already parsed forecast is kept on the entry so it is never re-parsed.
+     * With the binary format enabled only the encoded forecast is written, otherwise the JSON text.
+     */
+    public static Entry put(String city, String json, Forecast parsed) {
+        String key = CityResolver.cacheKey(city);
+        long now = Instant.now().getEpochSecond();
+        byte[] data = null;
+        Entry entry;
+        if (Config.CACHE_BINARY) {
+            if (parsed == null) parsed = Forecast.parse(json);
+            data = ForecastCodec.encode(parsed);
+            entry = new Entry(parsed, data.length, now);
+        } else {
+            entry = new Entry(json, now);
+            entry.forecast = parsed;
+        }
+        String text = data == null ? json : null;
+        byte[] blob = data;
+        int format = data == null ? FORMAT_JSON : FORMAT_BINARY;
+        // write-through: L1 first so readers see the new value immediately
+        memory.put(key, entry, now + HARD_TTL_SECONDS + 1);
         // Use upsert; works with modern sqlite-jdbc
-        try (Connection c = DriverManager.getConnection(URL);
-             PreparedStatement ps = c.prepareStatement(
-                     "INSERT INTO cache(city,json,fetched_at) VALUES(?,?,?) " +
-                             "ON CONFLICT(city) DO UPDATE SET json=excluded.json, fetched_at=excluded.fetched_at")) {
-            ps.setString(1, city.toLowerCase());
-            ps.setString(2, json);
-            ps.setLong(3, Instant.now().getEpochSecond());
-            ps.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            pool().write(h -> {
+                PreparedStatement ps = h.prepare(UPSERT_SQL);
+                ps.setString(1, key);
+                ps.setString(2, text);
+                ps.setBytes(3, blob);
+                ps.setInt(4, format);
+                ps.setLong(5, now);
+                return ps.executeUpdate();
+            });
         } catch (SQLException e) {
             System.err.println("Cache write error: " + e.getMessage());
             // fallback: try update/insert manually
-            try (Connection c = DriverManager.getConnection(URL)) {
-                try (PreparedStatement upd = c.prepareStatement("UPDATE cache SET json=?, fetched_at=? WHERE city=?")) {
-                    upd.setString(1, json);
-                    upd.setLong(2, Instant.now().getEpochSecond());
-                    upd.setString(3, city.toLowerCase());
+            try {
+                pool().write(h -> {
+                    PreparedStatement upd = h.prepare("UPDATE cache SET json=?, data=?, format=?, fetched_at=? WHERE city=?");
+                    upd.setString(1, text);
+                    upd.setBytes(2, blob);
+                    upd.setInt(3, format);
+                    upd.setLong(4, now);
+                    upd.setString(5, key);
                     int rows = upd.executeUpdate();
                     if (rows == 0) {
-                        try (PreparedStatement ins = c.prepareStatement("INSERT INTO cache(city,json,fetched_at) VALUES(?,?,?)")) {
-                            ins.setString(1, city.toLowerCase());
-                            ins.setString(2, json);
-                            ins.setLong(3, Instant.now().getEpochSecond());
-                            ins.executeUpdate();
-                        }
+                        PreparedStatement ins = h.prepare("INSERT INTO cache(city,json,data,format,fetched_at) VALUES(?,?,?,?,?)");
+                        ins.setString(1, key);
+                        ins.setString(2, text);
+                        ins.setBytes(3, blob);
+                        ins.setInt(4, format);
+                        ins.setLong(5, now);
+                        rows = ins.executeUpdate();
                     }
-                }
+                    return rows;
+                });
             } catch (SQLException ex) {
                 System.err.println("Cache fallback failed: " + ex.getMessage());
             }
+        } finally {
+            WRITE.recordSince(start);
         }
+        return entry;
     }
 }
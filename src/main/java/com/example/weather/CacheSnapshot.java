@@ -0,0 +1,134 @@
+package com.example.weather;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact file of the hottest L1 cache entries, so a new process answers its first lookups
+ * from memory instead of starting cold. Entries are stored as ForecastCodec bytes, together
+ * with the locations and spellings that resolve to them, so a warm lookup opens neither
+ * SQLite nor the resolver tables. Written at exit (temp file, then atomic rename) and read
+ * at startup; entries past the hard TTL are dropped on load, and an unreadable file is ignored.
+ *
+ * Layout: magic, version, then locations (id, name, country, lat, lon, spellings) and
+ * entries (cache key, fetched_at, encoded forecast); strings are length-prefixed UTF-8.
+ */
+public class CacheSnapshot {
+    private static final int MAGIC = 0x57534E50; // "WSNP"
+    private static final int VERSION = 1;
+
+    /** Restores entries into L1 and their spellings into CityResolver; returns the number of entries restored. */
+    public static int load(Path file) {
+        if (!Files.isRegularFile(file)) return 0;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                System.err.println("Ignoring cache snapshot " + file + ": unknown format");
+                return 0;
+            }
+            for (int i = buf.getInt(); i > 0; i--) {
+                CityResolver.Location loc = new CityResolver.Location(buf.getLong(), string(buf), string(buf),
+                        buf.getDouble(), buf.getDouble());
+                for (int a = buf.getInt(); a > 0; a--) CityResolver.seed(string(buf), loc);
+            }
+            int restored = 0;
+            for (int i = buf.getInt(); i > 0; i--) {
+                String key = string(buf);
+                long fetchedAt = buf.getLong();
+                byte[] data = new byte[length(buf)];
+                buf.get(data);
+                Forecast f = ForecastCodec.decode(data);
+                if (f != null && CacheDB.warm(key, f, data.length, fetchedAt)) restored++;
+            }
+            return restored;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("Ignoring cache snapshot " + file + ": " + e);
+            return 0;
+        }
+    }
+
+    /** Writes up to `maxEntries` of the most recently used L1 entries; returns the number written. */
+    public static int save(Path file, int maxEntries) {
+        List<Map.Entry<String, CacheDB.Entry>> hot = CacheDB.memory().hottest(maxEntries, Instant.now().getEpochSecond());
+        if (hot.isEmpty()) return 0;
+        // spellings of every city id among the entries
+        Map<Long, List<String>> spellings = new LinkedHashMap<>();
+        for (Map.Entry<String, CacheDB.Entry> e : hot) {
+            if (e.getKey().startsWith("id:")) spellings.put(Long.parseLong(e.getKey().substring(3)), new ArrayList<>());
+        }
+        for (Map.Entry<String, Long> a : CityResolver.aliases().entrySet()) {
+            List<String> names = spellings.get(a.getValue());
+            if (names != null) names.add(a.getKey());
+        }
+        Map<Long, CityResolver.Location> locations = new HashMap<>();
+        for (Long id : spellings.keySet()) {
+            CityResolver.Location loc = CityResolver.location(id);
+            if (loc != null) locations.put(id, loc);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(locations.size());
+            for (CityResolver.Location loc : locations.values()) {
+                out.writeLong(loc.id);
+                string(out, loc.name);
+                string(out, loc.country);
+                out.writeDouble(loc.lat);
+                out.writeDouble(loc.lon);
+                List<String> names = spellings.get(loc.id);
+                out.writeInt(names.size());
+                for (String n : names) string(out, n);
+            }
+            out.writeInt(hot.size());
+            for (Map.Entry<String, CacheDB.Entry> e : hot) {
+                byte[] data = ForecastCodec.encode(e.getValue().forecast());
+                string(out, e.getKey());
+                out.writeLong(e.getValue().fetchedAt);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.flush();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return hot.size();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not write cache snapshot " + file + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // A length prefix must fit in what is left of the file; anything else is a corrupt snapshot, not an allocation
+    private static int length(ByteBuffer buf) {
+        int n = buf.getInt();
+        if (n < 0 || n > buf.remaining()) throw new IllegalArgumentException("corrupt length " + n);
+        return n;
+    }
+
+    private static String string(ByteBuffer buf) {
+        byte[] b = new byte[length(buf)];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void string(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+}
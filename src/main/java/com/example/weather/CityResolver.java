@@ -0,0 +1,365 @@
+package com.example.weather;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps free-text city input to canonical OpenWeather locations, so "Chennai", "chennai "
+ * and "Chennai,IN" share one cache entry and one upstream call.
+ * Locations are learned from upstream answers (the current-weather payload carries the
+ * city id, name, country and coordinates) and kept with the spellings whose fetch returned
+ * them (at most weather.geo.maxAliases) in the cache database (tables `location` and `alias`),
+ * loaded into memory on first use. Other input is resolved, without a fetch and without
+ * storing anything, by "name[,country]" against known names, or for "lat,lon" input by the
+ * nearest known location within weather.geo.radiusKm, found through a grid of
+ * weather.geo.cellDegrees cells; coordinates are never stored as aliases.
+ * Resolved cities are cached under "id:<city id>" and queried upstream with id=.
+ */
+public final class CityResolver {
+    private static final double EARTH_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.2;
+    private static final Pattern COORDS = Pattern.compile("(-?\\d{1,2}(?:\\.\\d+)?)\\s*[, ]\\s*(-?\\d{1,3}(?:\\.\\d+)?)");
+
+    /** A canonical OpenWeather city. */
+    public static final class Location {
+        public final long id;
+        public final String name;
+        public final String country;
+        public final double lat;
+        public final double lon;
+
+        Location(long id, String name, String country, double lat, double lon) {
+            this.id = id;
+            this.name = name;
+            this.country = country == null ? "" : country;
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        public String key() {
+            return "id:" + id;
+        }
+    }
+
+    private static final Map<String, Long> aliases = new ConcurrentHashMap<>();
+    private static final Map<Long, Location> locations = new ConcurrentHashMap<>();
+    private static final Map<String, List<Long>> byName = new ConcurrentHashMap<>();
+    private static final Map<Long, List<Long>> grid = new ConcurrentHashMap<>();
+    private static final int GRID_COLUMNS = (int) Math.ceil(360 / Config.GEO_CELL_DEGREES);
+    private static volatile boolean loaded;
+    // bumped whenever a spelling or location is added, so resolutions cached elsewhere can be redone
+    private static final AtomicInteger version = new AtomicInteger();
+
+    private static final LongAdder ALIAS_HITS = Metrics.counter("resolve.alias");
+    private static final LongAdder NAME_HITS = Metrics.counter("resolve.name");
+    private static final LongAdder GEO_HITS = Metrics.counter("resolve.geo");
+    private static final LongAdder MISSES = Metrics.counter("resolve.miss");
+
+    private CityResolver() {}
+
+    /** Lower case, single spaces, no spaces around commas. */
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            int last = sb.length() - 1;
+            if (space && c != ',' && last >= 0 && sb.charAt(last) != ',') sb.append(' ');
+            space = false;
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /** The canonical location for free-text input, when it can be told without asking upstream. */
+    public static Optional<Location> resolve(String text) {
+        if (!Config.GEO_RESOLVE) return Optional.empty();
+        String alias = normalize(text);
+        // aliases restored from the startup snapshot are answered before the tables are read
+        Location known = byAlias(alias);
+        if (known == null) {
+            load();
+            known = byAlias(alias);
+        }
+        if (known != null) {
+            ALIAS_HITS.increment();
+            return Optional.of(known);
+        }
+        double[] point = coordinates(alias);
+        Location found = point != null ? nearest(point[0], point[1]) : byName(alias);
+        if (found == null) {
+            MISSES.increment();
+            return Optional.empty();
+        }
+        (point != null ? GEO_HITS : NAME_HITS).increment();
+        return Optional.of(found);
+    }
+
+    /** Cache key: "id:<city id>" once the input resolves, otherwise CacheDB.key of the text. */
+    public static String cacheKey(String text) {
+        Optional<Location> loc = resolve(text);
+        return loc.isPresent() ? loc.get().key() : CacheDB.key(text);
+    }
+
+    /** Upstream query parameters for the input: id=, lat=&lon= or q=, already URL-encoded. */
+    public static String query(String text) {
+        Optional<Location> loc = resolve(text);
+        if (loc.isPresent()) return "id=" + loc.get().id;
+        double[] point = coordinates(normalize(text));
+        if (point != null) return String.format(Locale.ROOT, "lat=%.4f&lon=%.4f", point[0], point[1]);
+        try {
+            return "q=" + URLEncoder.encode(text.trim(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records the location named in a fetched {current, forecast} payload and the input that
+     * asked for it. Payloads without a city id (errors, stubs) are ignored.
+     */
+    public static void learn(String text, String combinedJson) {
+        if (!Config.GEO_RESOLVE || combinedJson == null) return;
+        Location loc;
+        try {
+            loc = readLocation(combinedJson);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return;
+        }
+        if (loc == null) return;
+        load();
+        Location known = locations.get(loc.id);
+        if (known == null || known.lat != loc.lat || known.lon != loc.lon || !known.name.equals(loc.name)) {
+            index(loc);
+            try {
+                CacheDB.pool().write(h -> {
+                    PreparedStatement ps = h.prepare("INSERT OR REPLACE INTO location(id,name,country,lat,lon) VALUES(?,?,?,?,?)");
+                    ps.setLong(1, loc.id);
+                    ps.setString(2, loc.name);
+                    ps.setString(3, loc.country);
+                    ps.setDouble(4, loc.lat);
+                    ps.setDouble(5, loc.lon);
+                    return ps.executeUpdate();
+                });
+            } catch (SQLException e) {
+                System.err.println("Location write error: " + e.getMessage());
+            }
+        }
+        // a "lat,lon" input is answered from the grid next time; storing it would add one alias per point
+        String alias = normalize(text);
+        if (coordinates(alias) == null) remember(alias, loc.id);
+    }
+
+    private static void remember(String alias, long id) {
+        if (!aliases.containsKey(alias) && aliases.size() >= Config.GEO_MAX_ALIASES) return;
+        Long previous = aliases.put(alias, id);
+        if (previous != null && previous == id) return;
+        version.incrementAndGet();
+        try {
+            CacheDB.pool().write(h -> {
+                PreparedStatement ps = h.prepare("INSERT OR REPLACE INTO alias(alias,id) VALUES(?,?)");
+                ps.setString(1, alias);
+                ps.setLong(2, id);
+                return ps.executeUpdate();
+            });
+        } catch (SQLException e) {
+            System.err.println("Alias write error: " + e.getMessage());
+        }
+    }
+
+    private static Location byAlias(String alias) {
+        Long id = aliases.get(alias);
+        return id == null ? null : locations.get(id);
+    }
+
+    /** Known spellings and the city id each resolves to (read-only view). */
+    static Map<String, Long> aliases() {
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    /** Changes whenever what some input resolves to may have changed. */
+    static int version() {
+        return version.get();
+    }
+
+    static Location location(long id) {
+        return locations.get(id);
+    }
+
+    /** Adds a spelling and its location restored from a CacheSnapshot; the database is neither read nor written. */
+    static void seed(String alias, Location loc) {
+        if (!locations.containsKey(loc.id)) index(loc);
+        if (aliases.size() < Config.GEO_MAX_ALIASES && aliases.putIfAbsent(alias, loc.id) == null) version.incrementAndGet();
+    }
+
+    // "name" matches when exactly one known location has it; "name,country" or "name,state,country" narrows by country
+    private static Location byName(String alias) {
+        String[] parts = alias.split(",");
+        List<Long> ids = byName.get(parts[0]);
+        if (ids == null) return null;
+        String country = parts.length > 1 ? parts[parts.length - 1] : null;
+        Location match = null;
+        for (Long id : ids) {
+            Location loc = locations.get(id);
+            if (loc == null || (country != null && !loc.country.equalsIgnoreCase(country))) continue;
+            if (match != null) return null; // ambiguous
+            match = loc;
+        }
+        return match;
+    }
+
+    // Nearest known location within the radius, scanning the grid cells that the radius can reach
+    static Location nearest(double lat, double lon) {
+        double radius = Config.GEO_RADIUS_KM;
+        double cell = Config.GEO_CELL_DEGREES;
+        int latCells = (int) Math.ceil(radius / KM_PER_DEGREE / cell);
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        int lonCells = (int) Math.min(GRID_COLUMNS / 2, Math.ceil(radius / (KM_PER_DEGREE * cos) / cell));
+        long row = row(lat), col = column(lon);
+        Location best = null;
+        double bestKm = radius;
+        for (long r = row - latCells; r <= row + latCells; r++) {
+            for (long c = col - lonCells; c <= col + lonCells; c++) {
+                List<Long> ids = grid.get(r * GRID_COLUMNS + Math.floorMod(c, GRID_COLUMNS));
+                if (ids == null) continue;
+                for (Long id : ids) {
+                    Location loc = locations.get(id);
+                    if (loc == null) continue;
+                    double km = distanceKm(lat, lon, loc.lat, loc.lon);
+                    if (km <= bestKm) {
+                        bestKm = km;
+                        best = loc;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor((lat + 90) / Config.GEO_CELL_DEGREES);
+    }
+
+    private static long column(double lon) {
+        return Math.floorMod((long) Math.floor((lon + 180) / Config.GEO_CELL_DEGREES), GRID_COLUMNS);
+    }
+
+    // "lat,lon" or "lat lon" in decimal degrees
+    static double[] coordinates(String s) {
+        Matcher m = COORDS.matcher(s);
+        if (!m.matches()) return null;
+        double lat = Double.parseDouble(m.group(1)), lon = Double.parseDouble(m.group(2));
+        if (Math.abs(lat) > 90 || Math.abs(lon) > 180) return null;
+        return new double[]{lat, lon};
+    }
+
+    private static void index(Location loc) {
+        Location old = locations.put(loc.id, loc);
+        if (old != null) {
+            List<Long> names = byName.get(old.name.toLowerCase());
+            if (names != null) names.remove(old.id);
+            List<Long> cell = grid.get(row(old.lat) * GRID_COLUMNS + column(old.lon));
+            if (cell != null) cell.remove(old.id);
+        }
+        byName.computeIfAbsent(loc.name.toLowerCase(), k -> new CopyOnWriteArrayList<>()).add(loc.id);
+        grid.computeIfAbsent(row(loc.lat) * GRID_COLUMNS + column(loc.lon), k -> new CopyOnWriteArrayList<>()).add(loc.id);
+        version.incrementAndGet();
+    }
+
+    // Aliases and locations are small (one row per distinct input / city), so all of them live in memory
+    private static void load() {
+        if (loaded) return;
+        synchronized (CityResolver.class) {
+            if (loaded) return;
+            try {
+                CacheDB.pool().read(h -> {
+                    try (ResultSet rs = h.prepare("SELECT id, name, country, lat, lon FROM location").executeQuery()) {
+                        while (rs.next()) {
+                            index(new Location(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDouble(4), rs.getDouble(5)));
+                        }
+                    }
+                    try (ResultSet rs = h.prepare("SELECT alias, id FROM alias").executeQuery()) {
+                        while (rs.next() && aliases.size() < Config.GEO_MAX_ALIASES) aliases.put(rs.getString(1), rs.getLong(2));
+                    }
+                    return null;
+                });
+            } catch (SQLException e) {
+                System.err.println("Alias table read error: " + e.getMessage());
+            }
+            loaded = true;
+        }
+    }
+
+    // id, name, coord and sys.country of the "current" object
+    private static Location readLocation(String combinedJson) throws IOException {
+        long id = 0;
+        String name = null, country = null;
+        double lat = Double.NaN, lon = Double.NaN;
+        try (JsonReader json = new JsonReader(new StringReader(combinedJson))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("current") || json.peek() != JsonToken.BEGIN_OBJECT) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    String field = json.nextName();
+                    JsonToken t = json.peek();
+                    if (field.equals("id") && t == JsonToken.NUMBER) id = json.nextLong();
+                    else if (field.equals("name") && t == JsonToken.STRING) name = json.nextString();
+                    else if ((field.equals("coord") || field.equals("sys")) && t == JsonToken.BEGIN_OBJECT) {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            String f = json.nextName();
+                            JsonToken v = json.peek();
+                            if (f.equals("lat") && v == JsonToken.NUMBER) lat = json.nextDouble();
+                            else if (f.equals("lon") && v == JsonToken.NUMBER) lon = json.nextDouble();
+                            else if (f.equals("country") && v == JsonToken.STRING) country = json.nextString();
+                            else json.skipValue();
+                        }
+                        json.endObject();
+                    } else json.skipValue();
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+        if (id <= 0 || name == null || name.isEmpty() || Double.isNaN(lat) || Double.isNaN(lon)) return null;
+        return new Location(id, name, country, lat, lon);
+    }
+
+    public static String stats() {
+        return String.format("aliases=%d, locations=%d, resolved by alias=%d, by name=%d, nearby=%d, unresolved=%d",
+                aliases.size(), locations.size(), ALIAS_HITS.sum(), NAME_HITS.sum(), GEO_HITS.sum(), MISSES.sum());
+    }
+}
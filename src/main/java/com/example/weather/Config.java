@@ -2,7 +2,100 @@ package com.example.weather;
 
 public class Config {
 
+    // Upstream API root (-Dweather.api.baseUrl=http://localhost:9090/data/2.5 for a local stub)
+    public static final String API_BASE_URL = System.getProperty("weather.api.baseUrl", "https://api.openweathermap.org/data/2.5");
+
+    // Upstream provider: "openweather" (default) or "stub" for offline runs (-Dweather.provider=stub)
+    public static final String PROVIDER = System.getProperty("weather.provider", "openweather");
+
+    // Stub provider: directory of recorded payloads (bundled Chennai recording when unset),
+    // per-call latency and ± jitter in ms, and the fraction of calls that fail
+    public static final String STUB_DIR = System.getProperty("weather.stub.dir");
+    public static final long STUB_LATENCY_MS = Long.getLong("weather.stub.latencyMs", 50);
+    public static final long STUB_JITTER_MS = Long.getLong("weather.stub.jitterMs", 0);
+    public static final double STUB_ERROR_RATE = Double.parseDouble(System.getProperty("weather.stub.errorRate", "0"));
+
     // Working OpenWeather API Key
     public static final String API_KEY = "1bfc67bb7cadfaa64c64f040a3422f13";
 
+    // SQLite cache file (-Dweather.db.path=...)
+    public static final String DB_PATH = System.getProperty("weather.db.path", "weather_cache.db");
+
+    // Number of pooled read-only SQLite connections (-Dweather.db.readers=N)
+    public static final int DB_READERS = Integer.getInteger("weather.db.readers", 4);
+
+    // In-memory L1 cache bounds (-Dweather.l1.maxEntries=N, -Dweather.l1.maxBytes=N)
+    public static final int L1_MAX_ENTRIES = Integer.getInteger("weather.l1.maxEntries", 1000);
+    public static final long L1_MAX_BYTES = Long.getLong("weather.l1.maxBytes", 64L * 1024 * 1024);
+
+    // Upstream HTTP connect/read timeout in ms (-Dweather.http.timeoutMs=N); this is the ceiling,
+    // the timeout actually used follows recent latency down to weather.http.minTimeoutMs
+    public static final int HTTP_TIMEOUT_MS = Integer.getInteger("weather.http.timeoutMs", 15000);
+    public static final int HTTP_MIN_TIMEOUT_MS = Integer.getInteger("weather.http.minTimeoutMs", 1000);
+
+    // Upstream retries on 5xx/429: attempts per request, and retries allowed per first attempt
+    public static final int RETRY_MAX_ATTEMPTS = Integer.getInteger("weather.retry.maxAttempts", 3);
+    public static final double RETRY_BUDGET_RATIO = Double.parseDouble(System.getProperty("weather.retry.budgetRatio", "0.1"));
+
+    // Circuit breaker per upstream endpoint: failures in a row before opening, and how long it stays open
+    public static final int BREAKER_FAILURES = Integer.getInteger("weather.breaker.failures", 5);
+    public static final long BREAKER_OPEN_MS = Long.getLong("weather.breaker.openMs", 30000L);
+
+    // Batch fetch: cities in flight at once, and total time allowed per city
+    public static final int BATCH_PARALLELISM = Integer.getInteger("weather.batch.parallelism", 8);
+    public static final long FETCH_TIMEOUT_MS = Long.getLong("weather.fetch.timeoutMs", 30000L);
+
+    // Cache freshness: served as fresh up to the soft TTL, served stale while
+    // refreshing in the background up to the hard TTL (seconds)
+    public static final long SOFT_TTL_SECONDS = Long.getLong("weather.cache.softTtl", 60 * 30);
+    public static final long HARD_TTL_SECONDS = Long.getLong("weather.cache.hardTtl", 60 * 60 * 3);
+
+    // Refresh-ahead: how often hot cities are checked, how many lookups per interval make
+    // a city hot, and how long before the soft TTL a hot city is refreshed
+    public static final long REFRESH_AHEAD_INTERVAL_SECONDS = Long.getLong("weather.refreshAhead.interval", 60);
+    public static final int REFRESH_AHEAD_MIN_HITS = Integer.getInteger("weather.refreshAhead.minHits", 3);
+    public static final long REFRESH_AHEAD_LEAD_SECONDS = Long.getLong("weather.refreshAhead.lead", 120);
+
+    // Store cached forecasts as compact binary BLOBs instead of JSON text (-Dweather.cache.format=binary)
+    public static final boolean CACHE_BINARY = "binary".equalsIgnoreCase(System.getProperty("weather.cache.format", "json"));
+
+    // Upstream calls allowed per minute by the OpenWeather plan; the daemon stays under it (-Dweather.quota.perMinute=N)
+    public static final int QUOTA_PER_MINUTE = Integer.getInteger("weather.quota.perMinute", 60);
+
+    // Embedded HTTP API (--serve): port, handler threads and accept backlog
+    public static final int SERVER_PORT = Integer.getInteger("weather.server.port", 8080);
+    public static final int SERVER_THREADS = Integer.getInteger("weather.server.threads", 64);
+    public static final int SERVER_BACKLOG = Integer.getInteger("weather.server.backlog", 256);
+
+    // Observation history: database file, months kept, and how writes are batched
+    public static final String HISTORY_DB_PATH = System.getProperty("weather.history.path", "weather_history.db");
+    public static final int HISTORY_RETENTION_MONTHS = Integer.getInteger("weather.history.retentionMonths", 12);
+    public static final int HISTORY_BATCH = Integer.getInteger("weather.history.batch", 256);
+    public static final long HISTORY_FLUSH_SECONDS = Long.getLong("weather.history.flushSeconds", 5);
+
+    // Alert log records kept before alerts.txt is rewritten (-Dweather.alerts.compactAfter=N)
+    public static final int ALERT_COMPACT_AFTER = Integer.getInteger("weather.alerts.compactAfter", 256);
+
+    // City resolution: map input to OpenWeather city ids (off with -Dweather.resolve=false); "lat,lon" input is
+    // served by a known location within the radius, found through a grid of cells this many degrees wide
+    public static final boolean GEO_RESOLVE = Boolean.parseBoolean(System.getProperty("weather.resolve", "true"));
+    public static final double GEO_RADIUS_KM = Double.parseDouble(System.getProperty("weather.geo.radiusKm", "10"));
+    public static final double GEO_CELL_DEGREES = Double.parseDouble(System.getProperty("weather.geo.cellDegrees", "0.1"));
+    // Spellings remembered at most; further ones still resolve by name, they are just not stored
+    public static final int GEO_MAX_ALIASES = Integer.getInteger("weather.geo.maxAliases", 10_000);
+
+    // Current weather of resolved cities is fetched through data/2.5/group: requests arriving within the window
+    // share one call of up to maxIds ids (the API limit is 20); a window of 0 fetches every city on its own
+    public static final long GROUP_WINDOW_MS = Long.getLong("weather.group.windowMs", 50L);
+    public static final int GROUP_MAX_IDS = Math.min(20, Integer.getInteger("weather.group.maxIds", 20));
+
+    // Zone that forecast days are grouped in: "city" (the city's own UTC offset from the API), "host", or a zone id like UTC
+    public static final String DAY_ZONE = System.getProperty("weather.days.zone", "city");
+
+    // Startup snapshot of the hottest cache entries, read at start and rewritten at exit (0 entries disables it);
+    // -Dweather.startup.timing=true prints the time to the first result on stderr
+    public static final String SNAPSHOT_PATH = System.getProperty("weather.snapshot.path", "weather_snapshot.bin");
+    public static final int SNAPSHOT_ENTRIES = Integer.getInteger("weather.snapshot.entries", 200);
+    public static final boolean STARTUP_TIMING = Boolean.getBoolean("weather.startup.timing");
+
 }
@@ -0,0 +1,160 @@
+package com.example.weather;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streaming CSV writer over a byte channel.
+ * Rows are encoded straight into one reusable buffer: numbers are rendered digit by digit
+ * and text is UTF-8 encoded char by char, so writing a row allocates nothing. The buffer
+ * goes to the channel whenever it fills and on close.
+ */
+public final class CsvWriter implements AutoCloseable {
+    private static final byte[] DIGITS = "0123456789".getBytes();
+
+    private final WritableByteChannel out;
+    private final ByteBuffer buf;
+    private boolean firstField = true;
+    private long rows;
+
+    public CsvWriter(WritableByteChannel out, int bufferSize) {
+        this.out = out;
+        this.buf = ByteBuffer.allocate(Math.max(256, bufferSize));
+    }
+
+    public CsvWriter field(CharSequence s) throws IOException {
+        separator();
+        if (s == null) return this;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) put('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') put('"');
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put(0xF0 | (cp >> 18));
+                put(0x80 | ((cp >> 12) & 0x3F));
+                put(0x80 | ((cp >> 6) & 0x3F));
+                put(0x80 | (cp & 0x3F));
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+        if (quote) put('"');
+        return this;
+    }
+
+    public CsvWriter field(long v) throws IOException {
+        separator();
+        writeLong(v);
+        return this;
+    }
+
+    /** Fixed two decimals, rounded half up; NaN is written as an empty field. */
+    public CsvWriter field(double v) throws IOException {
+        separator();
+        if (Double.isNaN(v) || Double.isInfinite(v)) return this;
+        long scaled = Math.round(Math.abs(v) * 100);
+        if (v < 0 && scaled != 0) put('-');
+        writeLong(scaled / 100);
+        put('.');
+        int frac = (int) (scaled % 100);
+        put(DIGITS[frac / 10]);
+        put(DIGITS[frac % 10]);
+        return this;
+    }
+
+    /** Epoch seconds as "yyyy-MM-dd HH:mm" in UTC, without going through java.time objects. */
+    public CsvWriter dateTime(long epochSeconds) throws IOException {
+        separator();
+        int secs = (int) Math.floorMod(epochSeconds, 86400);
+        long ymd = DayBuckets.civil(Math.floorDiv(epochSeconds, 86400));
+        int day = (int) (ymd % 100);
+        int month = (int) (ymd / 100 % 100);
+        writeLong(ymd / 10000);
+        put('-');
+        two(month);
+        put('-');
+        two(day);
+        put(' ');
+        two(secs / 3600);
+        put(':');
+        two(secs / 60 % 60);
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        put('\n');
+        firstField = true;
+        rows++;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    private void separator() throws IOException {
+        if (firstField) firstField = false;
+        else put(',');
+    }
+
+    private void two(int v) throws IOException {
+        put(DIGITS[v / 10]);
+        put(DIGITS[v % 10]);
+    }
+
+    private void writeLong(long v) throws IOException {
+        if (v < 0) {
+            put('-');
+            if (v == Long.MIN_VALUE) {
+                // -v overflows; write the last digit separately
+                writeLong(-(v / 10));
+                put(DIGITS[(int) -(v % 10)]);
+                return;
+            }
+            v = -v;
+        }
+        if (buf.remaining() < 20) flush();
+        int start = buf.position();
+        do {
+            buf.put(DIGITS[(int) (v % 10)]);
+            v /= 10;
+        } while (v != 0);
+        // digits went in least significant first; reverse them in place
+        byte[] a = buf.array();
+        for (int i = start, j = buf.position() - 1; i < j; i++, j--) {
+            byte t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private void put(int b) throws IOException {
+        if (!buf.hasRemaining()) flush();
+        buf.put((byte) b);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.weather;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups epoch-second timestamps into local calendar days by arithmetic:
+ * day = floorDiv(epoch + offset, 86400), where the offset comes from the zone's rules
+ * only when a timestamp leaves the span between the two transitions around the last
+ * lookup. Fixed offsets (a city's "timezone" from the API) need no rules at all.
+ * Min/max per day is aggregated into primitive arrays indexed by day.
+ */
+public final class DayBuckets {
+    private static final int SECONDS_PER_DAY = 86400;
+    // a series spanning more days than this is aggregated by sorting instead of by direct index
+    private static final int MAX_SPAN = 4096;
+
+    private static final DayBuckets DEFAULT = new DayBuckets(defaultZone());
+    private static final Map<Integer, DayBuckets> FIXED = new ConcurrentHashMap<>();
+
+    /** Offset valid for [from, to). */
+    private static final class Span {
+        final long from, to;
+        final int offset;
+
+        Span(long from, long to, int offset) {
+            this.from = from;
+            this.to = to;
+            this.offset = offset;
+        }
+    }
+
+    /** Chronological days that had at least one value, with the min/max of each. */
+    public static final class Days {
+        public final int count;
+        public final long[] epochDays;
+        public final double[] min;
+        public final double[] max;
+
+        Days(int count, long[] epochDays, double[] min, double[] max) {
+            this.count = count;
+            this.epochDays = epochDays;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final Days NONE = new Days(0, new long[0], new double[0], new double[0]);
+
+    private final ZoneRules rules;
+    private final int fixedOffset;
+    private volatile Span span = new Span(0, 0, 0);
+
+    private DayBuckets(ZoneId zone) {
+        ZoneRules r = zone.getRules();
+        this.rules = r.isFixedOffset() ? null : r;
+        this.fixedOffset = r.isFixedOffset() ? r.getOffset(Instant.EPOCH).getTotalSeconds() : 0;
+    }
+
+    /**
+     * Buckets for a forecast: the city's own UTC offset when it is known and
+     * weather.days.zone is "city" (the default), otherwise the configured zone.
+     */
+    public static DayBuckets forOffset(int utcOffsetSeconds) {
+        if (utcOffsetSeconds == Forecast.NO_OFFSET || !"city".equals(Config.DAY_ZONE)) return DEFAULT;
+        return FIXED.computeIfAbsent(utcOffsetSeconds, o -> new DayBuckets(ZoneOffset.ofTotalSeconds(o)));
+    }
+
+    public static DayBuckets of(ZoneId zone) {
+        return new DayBuckets(zone);
+    }
+
+    private static ZoneId defaultZone() {
+        String z = Config.DAY_ZONE;
+        return z.equals("city") || z.equals("host") ? ZoneId.systemDefault() : ZoneId.of(z);
+    }
+
+    /** UTC offset in seconds at the given instant. */
+    public int offsetAt(long epochSecond) {
+        if (rules == null) return fixedOffset;
+        Span s = span;
+        if (epochSecond >= s.from && epochSecond < s.to) return s.offset;
+        Instant at = Instant.ofEpochSecond(epochSecond);
+        // latest transition at or before `at`, and the first one after it
+        ZoneOffsetTransition prev = rules.previousTransition(at.plusSeconds(1));
+        ZoneOffsetTransition next = rules.nextTransition(at);
+        s = new Span(prev == null ? Long.MIN_VALUE : prev.toEpochSecond(),
+                next == null ? Long.MAX_VALUE : next.toEpochSecond(),
+                rules.getOffset(at).getTotalSeconds());
+        span = s;
+        return s.offset;
+    }
+
+    /** Local day number (days since 1970-01-01) of an instant. */
+    public long epochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond + offsetAt(epochSecond), SECONDS_PER_DAY);
+    }
+
+    /** Min/max of values[0..n) per local day of dt[0..n). */
+    public Days aggregate(long[] dt, double[] values, int n) {
+        if (n == 0) return NONE;
+        long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            long d = epochDay(dt[i]);
+            lo = Math.min(lo, d);
+            hi = Math.max(hi, d);
+        }
+        if (hi - lo >= MAX_SPAN) return aggregateSparse(dt, values, n);
+
+        int span = (int) (hi - lo + 1);
+        double[] min = new double[span];
+        double[] max = new double[span];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        boolean[] seen = new boolean[span];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int k = (int) (epochDay(dt[i]) - lo);
+            if (!seen[k]) {
+                seen[k] = true;
+                count++;
+            }
+            min[k] = Math.min(min[k], values[i]);
+            max[k] = Math.max(max[k], values[i]);
+        }
+        if (count == span) {
+            long[] days = new long[span];
+            for (int k = 0; k < span; k++) days[k] = lo + k;
+            return new Days(span, days, min, max);
+        }
+        // drop days without entries (gaps in the series)
+        long[] days = new long[count];
+        double[] cmin = new double[count], cmax = new double[count];
+        for (int k = 0, j = 0; k < span; k++) {
+            if (!seen[k]) continue;
+            days[j] = lo + k;
+            cmin[j] = min[k];
+            cmax[j++] = max[k];
+        }
+        return new Days(count, days, cmin, cmax);
+    }
+
+    // Widely spread timestamps: distinct days by sorting, then binary search per entry
+    private Days aggregateSparse(long[] dt, double[] values, int n) {
+        long[] dayOf = new long[n];
+        for (int i = 0; i < n; i++) dayOf[i] = epochDay(dt[i]);
+        long[] days = dayOf.clone();
+        Arrays.sort(days);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || days[i] != days[count - 1]) days[count++] = days[i];
+        }
+        double[] min = new double[count], max = new double[count];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            int k = Arrays.binarySearch(days, 0, count, dayOf[i]);
+            min[k] = Math.min(min[k], values[i]);
+            max[k] = Math.max(max[k], values[i]);
+        }
+        return new Days(count, Arrays.copyOf(days, count), min, max);
+    }
+
+    /**
+     * Proleptic Gregorian date of an epoch day packed as year * 10000 + month * 100 + day
+     * (civil-from-days, H. Hinnant).
+     */
+    static long civil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /** "yyyy-MM-dd" of an epoch day (years 0..9999). */
+    public static String label(long epochDay) {
+        long ymd = civil(epochDay);
+        int year = (int) (ymd / 10000), month = (int) (ymd / 100 % 100), day = (int) (ymd % 100);
+        char[] c = new char[10];
+        c[0] = (char) ('0' + year / 1000 % 10);
+        c[1] = (char) ('0' + year / 100 % 10);
+        c[2] = (char) ('0' + year / 10 % 10);
+        c[3] = (char) ('0' + year % 10);
+        c[4] = '-';
+        c[5] = (char) ('0' + month / 10);
+        c[6] = (char) ('0' + month % 10);
+        c[7] = '-';
+        c[8] = (char) ('0' + day / 10);
+        c[9] = (char) ('0' + day % 10);
+        return new String(c);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.weather;
+
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+
+/**
+ * Parsed form of the combined {current, forecast} JSON.
+ * Built once per fetch or cache entry (see ForecastReader) and shared by the printer,
+ * alerts and CSV export.
+ * The 3-hourly series is kept in primitive arrays and the per-day min/max is
+ * aggregated once at construction time, in the city's own timezone when the API sent one
+ * (see DayBuckets).
+ */
+public final class Forecast {
+    /** utcOffset() when the payload carried no timezone. */
+    public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final Histogram PARSE = Metrics.timer("parse");
+
+    // current conditions (NaN / -1 / "" when missing)
+    public final double temp;
+    public final double feelsLike;
+    public final int humidity;
+    public final double wind;
+    public final String description;
+    private final int utcOffset;
+
+    // forecast series, one slot per 3-hour entry; null when no forecast list was present
+    private final int size;
+    private final long[] dt;
+    private final double[] temps;
+    private final double[] feels;
+    private final int[] humidities;
+    private final double[] winds;
+    private final String[] descriptions;
+
+    // per-day aggregation of temps, in chronological order
+    private final int days;
+    private final String[] dayLabels;
+    private final double[] dayMin;
+    private final double[] dayMax;
+
+    Forecast(double temp, double feelsLike, int humidity, double wind, String description,
+             int size, long[] dt, double[] temps, double[] feels, int[] humidities, double[] winds, String[] descriptions) {
+        this(temp, feelsLike, humidity, wind, description, NO_OFFSET, size, dt, temps, feels, humidities, winds, descriptions);
+    }
+
+    Forecast(double temp, double feelsLike, int humidity, double wind, String description, int utcOffset,
+             int size, long[] dt, double[] temps, double[] feels, int[] humidities, double[] winds, String[] descriptions) {
+        this.temp = temp;
+        this.feelsLike = feelsLike;
+        this.humidity = humidity;
+        this.wind = wind;
+        this.description = description == null ? "" : description;
+        this.utcOffset = utcOffset;
+        this.size = size;
+        this.dt = dt;
+        this.temps = temps;
+        this.feels = feels;
+        this.humidities = humidities;
+        this.winds = winds;
+        this.descriptions = descriptions;
+
+        DayBuckets.Days daily = DayBuckets.forOffset(utcOffset).aggregate(dt, temps, size);
+        String[] labels = new String[daily.count];
+        for (int d = 0; d < labels.length; d++) labels[d] = DayBuckets.label(daily.epochDays[d]);
+        this.days = daily.count;
+        this.dayLabels = labels;
+        this.dayMin = daily.min;
+        this.dayMax = daily.max;
+    }
+
+    /** Parses the combined wrapper JSON; throws JsonParseException if it is not a valid JSON object. */
+    public static Forecast parse(String combinedJson) {
+        long start = System.nanoTime();
+        try {
+            return ForecastReader.readCombined(combinedJson);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonParseException("Invalid forecast JSON", e);
+        } finally {
+            PARSE.recordSince(start);
+        }
+    }
+
+    /** The city's UTC offset in seconds as reported by the API, or NO_OFFSET. */
+    public int utcOffset() {
+        return utcOffset;
+    }
+
+    public boolean hasForecast() {
+        return dt != null;
+    }
+
+    public int size() { return size; }
+    public long dt(int i) { return dt[i]; }
+    public double temp(int i) { return temps[i]; }
+    public double feelsLike(int i) { return feels[i]; }
+    public int humidity(int i) { return humidities[i]; }
+    public double wind(int i) { return winds[i]; }
+    public String description(int i) { return descriptions[i]; }
+
+    public int days() { return days; }
+    public String dayLabel(int d) { return dayLabels[d]; }
+    public double dayMin(int d) { return dayMin[d]; }
+    public double dayMax(int d) { return dayMax[d]; }
+
+    /** True if any forecast entry mentions rain, showers or drizzle. */
+    public boolean rainExpected() {
+        for (int i = 0; i < size; i++) {
+            if (isRain(descriptions[i])) return true;
+        }
+        return false;
+    }
+
+    static boolean isRain(String desc) {
+        if (desc == null) return false;
+        String d = desc.toLowerCase();
+        return d.contains("rain") || d.contains("shower") || d.contains("drizzle");
+    }
+}
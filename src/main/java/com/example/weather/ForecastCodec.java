@@ -0,0 +1,142 @@
+package com.example.weather;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a Forecast for the cache BLOB column.
+ *
+ * Layout (big-endian), version 2:
+ *   magic 'W' 'F', version byte
+ *   string table: count (ubyte), then length-prefixed UTF-8 condition descriptions
+ *   current: temp, feels_like (short, centi-degrees), humidity (short), wind (short, cm/s),
+ *            description index (ubyte)
+ *   series flag (byte, 0 = no forecast list), entry count (ushort), base epoch seconds (long)
+ *   city UTC offset (int seconds, Integer.MIN_VALUE when unknown; absent in version 1)
+ *   per entry: dt offset from base (int seconds), temp, feels_like (short centi-degrees),
+ *              humidity (byte), wind (short cm/s), description index (ubyte)
+ * Scaled values use Short.MIN_VALUE (or -1 for humidity, 0xFF for descriptions) for "missing".
+ * A 40-entry forecast encodes to well under 1 KB and decodes without any JSON parsing.
+ */
+public class ForecastCodec {
+    public static final int VERSION = 2;
+    private static final byte MAGIC_0 = 'W', MAGIC_1 = 'F';
+    private static final int NO_DESC = 0xFF;
+    private static final short MISSING = Short.MIN_VALUE;
+
+    public static byte[] encode(Forecast f) {
+        Map<String, Integer> index = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int currentDesc = intern(f.description.isEmpty() ? null : f.description, index, table);
+        int n = f.hasForecast() ? f.size() : 0;
+        int[] descs = new int[n];
+        for (int i = 0; i < n; i++) descs[i] = intern(f.description(i), index, table);
+
+        int size = 3 + 1 + 9 + 1 + 2 + 8 + 4 + n * 12;
+        byte[][] encoded = new byte[table.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = table.get(i).getBytes(StandardCharsets.UTF_8);
+            size += 1 + encoded[i].length;
+        }
+
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION);
+        b.put((byte) encoded.length);
+        for (byte[] s : encoded) {
+            b.put((byte) s.length).put(s);
+        }
+        b.putShort(scale(f.temp)).putShort(scale(f.feelsLike)).putShort((short) f.humidity)
+                .putShort(scale(f.wind)).put((byte) currentDesc);
+
+        b.put((byte) (f.hasForecast() ? 1 : 0));
+        b.putShort((short) n);
+        long base = n > 0 ? f.dt(0) : 0;
+        b.putLong(base);
+        b.putInt(f.utcOffset());
+        for (int i = 0; i < n; i++) {
+            b.putInt((int) (f.dt(i) - base));
+            b.putShort(scale(f.temp(i)));
+            b.putShort(scale(f.feelsLike(i)));
+            b.put((byte) f.humidity(i));
+            b.putShort(scale(f.wind(i)));
+            b.put((byte) descs[i]);
+        }
+        return b.array();
+    }
+
+    /** Decodes a BLOB (version 1 or 2); returns null if it is not a version this build understands. */
+    public static Forecast decode(byte[] data) {
+        if (data == null || data.length < 3 || data[0] != MAGIC_0 || data[1] != MAGIC_1
+                || (data[2] != VERSION && data[2] != 1)) {
+            return null;
+        }
+        int version = data[2];
+        try {
+            ByteBuffer b = ByteBuffer.wrap(data, 3, data.length - 3);
+            String[] table = new String[b.get() & 0xFF];
+            for (int i = 0; i < table.length; i++) {
+                int len = b.get() & 0xFF;
+                table[i] = new String(data, b.position(), len, StandardCharsets.UTF_8).intern();
+                b.position(b.position() + len);
+            }
+            double temp = unscale(b.getShort());
+            double feels = unscale(b.getShort());
+            int humidity = b.getShort();
+            double wind = unscale(b.getShort());
+            String desc = lookup(table, b.get());
+
+            boolean hasList = b.get() != 0;
+            int n = b.getShort() & 0xFFFF;
+            long base = b.getLong();
+            int utcOffset = version >= 2 ? b.getInt() : Forecast.NO_OFFSET;
+            if (!hasList) {
+                return new Forecast(temp, feels, humidity, wind, desc, utcOffset, 0, null, null, null, null, null, null);
+            }
+            long[] dt = new long[n];
+            double[] temps = new double[n], feelsArr = new double[n], winds = new double[n];
+            int[] hums = new int[n];
+            String[] descs = new String[n];
+            for (int i = 0; i < n; i++) {
+                dt[i] = base + b.getInt();
+                temps[i] = unscale(b.getShort());
+                feelsArr[i] = unscale(b.getShort());
+                hums[i] = b.get();
+                winds[i] = unscale(b.getShort());
+                descs[i] = lookup(table, b.get());
+            }
+            return new Forecast(temp, feels, humidity, wind, desc, utcOffset, n, dt, temps, feelsArr, hums, winds, descs);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static int intern(String s, Map<String, Integer> index, List<String> table) {
+        if (s == null) return NO_DESC;
+        Integer i = index.get(s);
+        if (i != null) return i;
+        if (table.size() >= NO_DESC || s.getBytes(StandardCharsets.UTF_8).length > 255) return NO_DESC;
+        index.put(s, table.size());
+        table.add(s);
+        return table.size() - 1;
+    }
+
+    private static String lookup(String[] table, byte code) {
+        int i = code & 0xFF;
+        return i == NO_DESC || i >= table.length ? null : table[i];
+    }
+
+    private static short scale(double v) {
+        if (Double.isNaN(v)) return MISSING;
+        long s = Math.round(v * 100);
+        return (short) Math.max(Short.MIN_VALUE + 1, Math.min(Short.MAX_VALUE, s));
+    }
+
+    private static double unscale(short s) {
+        return s == MISSING ? Double.NaN : s / 100.0;
+    }
+}
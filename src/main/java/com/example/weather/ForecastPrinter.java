@@ -1,17 +1,18 @@
 package com.example.weather;
 
-import com.google.gson.*;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Prints a friendly, colored weather summary with emojis, feels-like, humidity, wind.
  * Uses basic ANSI escape codes for coloring (works on modern terminals).
+ * Output is built into a reusable per-thread buffer from pre-built color, emoji and bar
+ * fragments and written with one call per city (or one per dashboard), instead of one
+ * synchronized PrintStream call per field and per bar character.
  */
 public class ForecastPrinter {
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
     // ANSI colors
     private static final String RESET = "\u001B[0m";
@@ -20,126 +21,174 @@ public class ForecastPrinter {
     private static final String YELLOW = "\u001B[33m";
     private static final String CYAN = "\u001B[36m";
     private static final String MAGENTA = "\u001B[35m";
+    private static final String DEGREES = "°C" + RESET;
+
+    // bars are sliced out of one string; longer bars (temps above 80) are appended in pieces
+    private static final String BARS = repeat('#', 80);
+    private static final String SPACES = repeat(' ', 80);
+
+    // descriptions come from a small fixed vocabulary, so their emoji is looked up once
+    private static final Map<String, String> EMOJI = new ConcurrentHashMap<>();
+
+    // buffers that grew past this (a large dashboard) are not kept around
+    private static final int MAX_RETAINED = 1 << 20;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(2048));
 
     public static void printSummaryCombined(String city, String combinedJson) {
-        JsonObject root = JsonParser.parseString(combinedJson).getAsJsonObject();
-
-        JsonObject current = root.getAsJsonObject("current");
-        double temp = Double.NaN;
-        double feels = Double.NaN;
-        int humidity = -1;
-        double wind = Double.NaN;
-        String weatherDesc = "";
-
-        if (current != null) {
-            try {
-                if (current.has("main")) {
-                    JsonObject main = current.getAsJsonObject("main");
-                    if (main.has("temp")) temp = main.get("temp").getAsDouble();
-                    if (main.has("feels_like")) feels = main.get("feels_like").getAsDouble();
-                    if (main.has("humidity")) humidity = main.get("humidity").getAsInt();
-                } else {
-                    if (current.has("temp")) temp = current.get("temp").getAsDouble();
-                    if (current.has("feels_like")) feels = current.get("feels_like").getAsDouble();
-                }
-                if (current.has("wind")) {
-                    JsonObject w = current.getAsJsonObject("wind");
-                    if (w.has("speed")) wind = w.get("speed").getAsDouble();
-                }
-                if (current.has("weather")) {
-                    JsonArray wa = current.getAsJsonArray("weather");
-                    if (wa.size() > 0) weatherDesc = wa.get(0).getAsJsonObject().get("description").getAsString();
-                }
-            } catch (Exception ignored) {}
-        }
+        printSummary(city, Forecast.parse(combinedJson));
+    }
 
-        String emoji = emojiFor(weatherDesc);
-        String title = String.format("%s %sWeather for %s%s", emoji, CYAN, city, RESET);
+    public static void printSummary(String city, Forecast fc) {
+        StringBuilder sb = BUFFER.get();
+        appendSummary(sb, city, fc);
+        write(sb);
+    }
 
-        System.out.println();
-        System.out.print(title + " — ");
-        if (!Double.isNaN(temp)) {
-            System.out.printf("%s%.1f°C%s", YELLOW, temp, RESET);
-        } else {
-            System.out.print("N/A");
-        }
-        if (!Double.isNaN(feels)) {
-            System.out.printf(" (Feels like %s%.1f°C%s)", MAGENTA, feels, RESET);
-        }
-        if (humidity >= 0) {
-            System.out.printf("  Humidity: %s%d%%%s", GREEN, humidity, RESET);
-        }
-        if (!Double.isNaN(wind)) {
-            System.out.printf("  Wind: %s%.1f m/s%s", CYAN, wind, RESET);
-        }
-        System.out.printf("  Condition: %s%s%s\n", YELLOW, weatherDesc, RESET);
+    /** The full summary of one city, as printSummary shows it. */
+    public static StringBuilder appendSummary(StringBuilder sb, String city, Forecast fc) {
+        sb.append('\n').append(emojiFor(fc.description)).append(' ').append(CYAN).append("Weather for ").append(city).append(RESET).append(" — ");
+        if (!Double.isNaN(fc.temp)) fixed(sb.append(YELLOW), fc.temp).append(DEGREES);
+        else sb.append("N/A");
+        if (!Double.isNaN(fc.feelsLike)) fixed(sb.append(" (Feels like ").append(MAGENTA), fc.feelsLike).append(DEGREES).append(')');
+        if (fc.humidity >= 0) sb.append("  Humidity: ").append(GREEN).append(fc.humidity).append('%').append(RESET);
+        if (!Double.isNaN(fc.wind)) fixed(sb.append("  Wind: ").append(CYAN), fc.wind).append(" m/s").append(RESET);
+        sb.append("  Condition: ").append(YELLOW).append(fc.description).append(RESET).append('\n');
 
         // Print aggregated 5-day forecast same as before (if present)
-        JsonObject forecastObj = root.getAsJsonObject("forecast");
-        if (forecastObj == null || !forecastObj.has("list")) {
-            System.out.println("No forecast data available.");
-            return;
+        if (!fc.hasForecast()) {
+            return sb.append("No forecast data available.\n");
+        }
+
+        int shown = Math.min(5, fc.days());
+        sb.append("\n5-day aggregated forecast:\n");
+        for (int d = 0; d < shown; d++) {
+            double min = fc.dayMin(d), max = fc.dayMax(d);
+            sb.append(' ').append(fc.dayLabel(d)).append(" — ");
+            fixed(sb.append(GREEN), min).append(RESET).append('/');
+            fixed(sb.append(YELLOW), max).append(RESET).append(' ').append(dayEmojiFor(min, max)).append('\n');
         }
 
-        JsonArray list = forecastObj.getAsJsonArray("list");
-        Map<String, double[]> dailyMinMax = new LinkedHashMap<>();
-        for (JsonElement e : list) {
-            try {
-                JsonObject item = e.getAsJsonObject();
-                long dt = item.get("dt").getAsLong();
-                String date = Instant.ofEpochSecond(dt).atZone(ZoneId.systemDefault())
-                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                JsonObject main = item.getAsJsonObject("main");
-                double t = main.get("temp").getAsDouble();
-                if (!dailyMinMax.containsKey(date)) dailyMinMax.put(date, new double[]{t, t});
-                else {
-                    double[] mm = dailyMinMax.get(date);
-                    mm[0] = Math.min(mm[0], t);
-                    mm[1] = Math.max(mm[1], t);
-                }
-            } catch (Exception ex) { /* skip */ }
+        // ASCII chart
+        sb.append("\n5-day highs (ASCII):\n");
+        for (int d = 0; d < shown; d++) {
+            double max = fc.dayMax(d);
+            sb.append(fc.dayLabel(d)).append(" | ");
+            bar(sb, (int) Math.round(max));
+            fixed(sb.append(' ').append(YELLOW), max).append(DEGREES).append('\n');
         }
+        return sb.append('\n');
+    }
 
-        System.out.println();
-        System.out.println("5-day aggregated forecast:");
-        int count = 0;
-        for (Map.Entry<String, double[]> en : dailyMinMax.entrySet()) {
-            if (count++ >= 5) break;
-            double min = en.getValue()[0], max = en.getValue()[1];
-            String dayEmoji = dayEmojiFor(min, max);
-            System.out.printf(" %s — %s%.1f%s/%s%.1f%s %s\n",
-                    en.getKey(),
-                    GREEN, min, RESET,
-                    YELLOW, max, RESET,
-                    dayEmoji);
+    /**
+     * One line per city (now, feels, humidity, wind, condition, then the next days' min/max),
+     * all written at once. Failed lookups show their error in place of the data.
+     */
+    public static void printDashboard(List<BatchFetcher.Result> results) {
+        StringBuilder sb = BUFFER.get();
+        int width = 4;
+        for (BatchFetcher.Result r : results) width = Math.max(width, Math.min(24, r.city.length()));
+        pad(sb.append(CYAN), "City", width).append(RESET).append("       Now   Feels   Hum   Wind  Condition             Next days (min/max)\n");
+        int ok = 0;
+        for (BatchFetcher.Result r : results) {
+            pad(sb, r.city, width);
+            if (!r.ok()) {
+                sb.append("  ").append(RED).append(r.error).append(RESET).append('\n');
+                continue;
+            }
+            ok++;
+            appendRow(sb, r.forecast(), r.stale || r.upstreamError != null);
         }
+        sb.append(ok).append('/').append(results.size()).append(" cities\n");
+        write(sb);
+    }
 
-        // ASCII chart
-        System.out.println();
-        System.out.println("5-day highs (ASCII):");
-        count = 0;
-        for (Map.Entry<String, double[]> en : dailyMinMax.entrySet()) {
-            if (count++ >= 5) break;
-            double max = en.getValue()[1];
-            int bars = (int) Math.round(max);
-            System.out.printf("%s | ", en.getKey());
-            for (int b = 0; b < Math.max(0, bars); b++) System.out.print("#");
-            System.out.printf(" %s%.1f°C%s\n", YELLOW, max, RESET);
+    private static void appendRow(StringBuilder sb, Forecast fc, boolean old) {
+        sb.append(' ').append(emojiFor(fc.description)).append(' ');
+        degrees(number(sb.append(YELLOW), fc.temp, 6), fc.temp);
+        degrees(number(sb.append(MAGENTA), fc.feelsLike, 6), fc.feelsLike);
+        if (fc.humidity >= 0) pad(sb.append(GREEN), fc.humidity, 4).append('%').append(RESET);
+        else sb.append("     ");
+        number(sb.append(CYAN), fc.wind, 6).append(RESET).append("  ");
+        String desc = fc.description.length() > 20 ? fc.description.substring(0, 20) : fc.description;
+        pad(sb, desc, 21);
+        for (int d = 0; d < Math.min(5, fc.days()); d++) {
+            fixed(sb.append(' ').append(GREEN), fc.dayMin(d)).append(RESET).append('/');
+            fixed(sb.append(YELLOW), fc.dayMax(d)).append(RESET);
         }
-        System.out.println();
+        if (old) sb.append("  (cached)");
+        sb.append('\n');
+    }
+
+    // One write for the whole buffer, then keep it for the next render unless it grew very large
+    private static void write(StringBuilder sb) {
+        System.out.print(sb);
+        System.out.flush();
+        if (sb.capacity() > MAX_RETAINED) BUFFER.remove();
+        else sb.setLength(0);
+    }
+
+    // %.1f without the Formatter: round to tenths, then integer and fraction digits
+    static StringBuilder fixed(StringBuilder sb, double v) {
+        if (Double.isNaN(v)) return sb.append("N/A");
+        long tenths = Math.round(Math.abs(v) * 10);
+        if (v < 0 && tenths != 0) sb.append('-');
+        return sb.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+    }
+
+    // Right-aligned %.1f in `width` columns
+    private static StringBuilder number(StringBuilder sb, double v, int width) {
+        int start = sb.length();
+        fixed(sb, v);
+        int len = sb.length() - start;
+        if (len < width) sb.insert(start, SPACES, 0, width - len);
+        return sb;
+    }
+
+    // the unit after a table cell; a missing value gets blanks of the same width instead
+    private static StringBuilder degrees(StringBuilder sb, double v) {
+        return Double.isNaN(v) ? sb.append("  ").append(RESET) : sb.append(DEGREES);
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int v, int width) {
+        int start = sb.length();
+        sb.append(v);
+        int len = sb.length() - start;
+        if (len < width) sb.insert(start, SPACES, 0, width - len);
+        return sb;
+    }
+
+    // Left-aligned text, cut at `width`
+    private static StringBuilder pad(StringBuilder sb, String s, int width) {
+        if (s.length() >= width) return sb.append(s, 0, width);
+        return sb.append(s).append(SPACES, 0, width - s.length());
+    }
+
+    private static void bar(StringBuilder sb, int n) {
+        for (; n > 0; n -= BARS.length()) sb.append(BARS, 0, Math.min(n, BARS.length()));
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
     }
 
     // Map brief weather description to emoji
     private static String emojiFor(String desc) {
         if (desc == null) return "";
+        String cached = EMOJI.get(desc);
+        if (cached != null) return cached;
         String d = desc.toLowerCase();
-        if (d.contains("clear")) return "☀️";
-        if (d.contains("cloud")) return "☁️";
-        if (d.contains("rain") || d.contains("shower") || d.contains("drizzle")) return "🌧️";
-        if (d.contains("thunder")) return "⛈️";
-        if (d.contains("snow")) return "❄️";
-        if (d.contains("mist") || d.contains("fog") || d.contains("haze")) return "🌫️";
-        return "🌤️";
+        String e;
+        if (d.contains("clear")) e = "☀️";
+        else if (d.contains("cloud")) e = "☁️";
+        else if (d.contains("rain") || d.contains("shower") || d.contains("drizzle")) e = "🌧️";
+        else if (d.contains("thunder")) e = "⛈️";
+        else if (d.contains("snow")) e = "❄️";
+        else if (d.contains("mist") || d.contains("fog") || d.contains("haze")) e = "🌫️";
+        else e = "🌤️";
+        if (EMOJI.size() < 1024) EMOJI.put(desc, e);
+        return e;
     }
 
     // Day-level emoji based on temps (simple)
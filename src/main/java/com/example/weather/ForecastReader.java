@@ -0,0 +1,251 @@
+package com.example.weather;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for OpenWeather payloads.
+ * Pulls only the fields the app uses (dt, temp, feels_like, humidity, wind speed, the
+ * first weather description and the city's timezone offset) straight into a Forecast's primitive arrays; everything
+ * else is skipped without building a JSON tree.
+ * The reader runs over response bodies that have already been read into strings, not over the socket:
+ * the same text is still needed afterwards for the JSON cache row, CityResolver.learn and the
+ * group-response split, and a body is only complete once HttpTransport has inflated and checked it.
+ */
+public class ForecastReader {
+
+    // current conditions, with "main" values taking precedence over top-level ones
+    private double mainTemp = Double.NaN, mainFeels = Double.NaN, mainHumidity = Double.NaN;
+    private double topTemp = Double.NaN, topFeels = Double.NaN, topHumidity = Double.NaN;
+    private double wind = Double.NaN;
+    private String description = "";
+    // UTC offset in seconds: "timezone" of the current response, else "city.timezone" of the forecast
+    private double currentOffset = Double.NaN, cityOffset = Double.NaN;
+
+    // forecast series
+    private boolean hasList;
+    private int n;
+    private long[] dt = new long[40];
+    private double[] temps = new double[40];
+    private double[] feels = new double[40];
+    private int[] humidities = new int[40];
+    private double[] winds = new double[40];
+    private String[] descriptions = new String[40];
+
+    /** Reads the combined wrapper {"current": ..., "forecast": ...}. */
+    public static Forecast readCombined(Reader in) throws IOException {
+        ForecastReader r = new ForecastReader();
+        try (JsonReader json = new JsonReader(in)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("current") && json.peek() == JsonToken.BEGIN_OBJECT) r.current(json);
+                else if (name.equals("forecast") && json.peek() == JsonToken.BEGIN_OBJECT) r.forecast(json);
+                else json.skipValue();
+            }
+            json.endObject();
+        }
+        return r.build();
+    }
+
+    /** Reads the separate current-weather and forecast responses as they come from upstream. */
+    public static Forecast read(Reader current, Reader forecast) throws IOException {
+        ForecastReader r = new ForecastReader();
+        try (JsonReader json = new JsonReader(current)) {
+            r.current(json);
+        }
+        try (JsonReader json = new JsonReader(forecast)) {
+            r.forecast(json);
+        }
+        return r.build();
+    }
+
+    public static Forecast readCombined(String combinedJson) throws IOException {
+        return readCombined(new StringReader(combinedJson));
+    }
+
+    private void current(JsonReader json) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "main":
+                    if (!isObject(json)) break;
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "temp": mainTemp = number(json); break;
+                            case "feels_like": mainFeels = number(json); break;
+                            case "humidity": mainHumidity = number(json); break;
+                            default: json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                case "temp": topTemp = number(json); break;
+                case "feels_like": topFeels = number(json); break;
+                case "humidity": topHumidity = number(json); break;
+                case "wind": wind = windSpeed(json); break;
+                case "timezone": currentOffset = number(json); break;
+                case "weather":
+                    String d = firstDescription(json);
+                    if (d != null) description = d;
+                    break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private void forecast(JsonReader json) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("list") && json.peek() == JsonToken.BEGIN_ARRAY) {
+                hasList = true;
+                json.beginArray();
+                while (json.hasNext()) item(json);
+                json.endArray();
+            } else if (name.equals("city") && isObject(json)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals("timezone")) cityOffset = number(json);
+                    else json.skipValue();
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private void item(JsonReader json) throws IOException {
+        if (!isObject(json)) return;
+        long t = Long.MIN_VALUE;
+        double temp = Double.NaN, feel = Double.NaN, hum = Double.NaN, w = Double.NaN;
+        String desc = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "dt":
+                    double v = number(json);
+                    if (!Double.isNaN(v)) t = (long) v;
+                    break;
+                case "main":
+                    if (!isObject(json)) break;
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "temp": temp = number(json); break;
+                            case "feels_like": feel = number(json); break;
+                            case "humidity": hum = number(json); break;
+                            default: json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                case "wind": w = windSpeed(json); break;
+                case "weather": desc = firstDescription(json); break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        if (t == Long.MIN_VALUE || Double.isNaN(temp)) return; // skip malformed list entry
+
+        if (n == dt.length) grow();
+        dt[n] = t;
+        temps[n] = temp;
+        feels[n] = feel;
+        humidities[n] = Double.isNaN(hum) ? -1 : (int) hum;
+        winds[n] = w;
+        descriptions[n] = desc == null ? null : desc.intern();
+        n++;
+    }
+
+    private void grow() {
+        int cap = dt.length * 2;
+        dt = Arrays.copyOf(dt, cap);
+        temps = Arrays.copyOf(temps, cap);
+        feels = Arrays.copyOf(feels, cap);
+        humidities = Arrays.copyOf(humidities, cap);
+        winds = Arrays.copyOf(winds, cap);
+        descriptions = Arrays.copyOf(descriptions, cap);
+    }
+
+    private Forecast build() {
+        double temp = Double.isNaN(mainTemp) ? topTemp : mainTemp;
+        double feelsLike = Double.isNaN(mainFeels) ? topFeels : mainFeels;
+        double hum = Double.isNaN(mainHumidity) ? topHumidity : mainHumidity;
+        double offset = Double.isNaN(currentOffset) ? cityOffset : currentOffset;
+        // real offsets are within +/-18h
+        int utcOffset = Double.isNaN(offset) || Math.abs(offset) > 18 * 3600 ? Forecast.NO_OFFSET : (int) offset;
+        if (!hasList) {
+            return new Forecast(temp, feelsLike, Double.isNaN(hum) ? -1 : (int) hum, wind, description, utcOffset,
+                    0, null, null, null, null, null, null);
+        }
+        return new Forecast(temp, feelsLike, Double.isNaN(hum) ? -1 : (int) hum, wind, description, utcOffset,
+                n, dt, temps, feels, humidities, winds, descriptions);
+    }
+
+    private static boolean isObject(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.BEGIN_OBJECT) return true;
+        json.skipValue();
+        return false;
+    }
+
+    // Numbers (or numeric strings); anything else is skipped and reads as NaN
+    private static double number(JsonReader json) throws IOException {
+        JsonToken t = json.peek();
+        if (t == JsonToken.NUMBER) return json.nextDouble();
+        if (t == JsonToken.STRING) {
+            try {
+                return Double.parseDouble(json.nextString());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        json.skipValue();
+        return Double.NaN;
+    }
+
+    private static double windSpeed(JsonReader json) throws IOException {
+        double speed = Double.NaN;
+        if (!isObject(json)) return speed;
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("speed")) speed = number(json);
+            else json.skipValue();
+        }
+        json.endObject();
+        return speed;
+    }
+
+    private static String firstDescription(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_ARRAY) {
+            json.skipValue();
+            return null;
+        }
+        String desc = null;
+        boolean first = true;
+        json.beginArray();
+        while (json.hasNext()) {
+            if (first && json.peek() == JsonToken.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals("description") && json.peek() == JsonToken.STRING) desc = json.nextString();
+                    else json.skipValue();
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+            first = false;
+        }
+        json.endArray();
+        return desc;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.weather;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces current-weather requests for cities with a known id into group requests
+ * (data/2.5/group?id=..., at most maxIds ids each). The first request opens a window;
+ * the batch is sent when the window closes or fills up, whichever comes first, and every
+ * waiting caller gets its own city's object out of the response, so each city is still
+ * parsed and cached on its own. Ids a successful response leaves out are fetched individually;
+ * when the group call fails or answers nothing, every waiting caller gets an empty result
+ * instead, so a struggling upstream is not hit with one request per city on top.
+ */
+public class GroupBatcher {
+    private static final LongAdder REQUESTS = Metrics.counter("group.requests");
+    private static final LongAdder IDS = Metrics.counter("group.ids");
+    private static final LongAdder MISSING = Metrics.counter("group.missing");
+    private static final LongAdder FAILED = Metrics.counter("group.failed");
+
+    /** One caller waiting for the current weather of a city id. */
+    private static final class Pending {
+        final long id;
+        final String city;
+        final CompletableFuture<Optional<String>> result = new CompletableFuture<>();
+
+        Pending(long id, String city) {
+            this.id = id;
+            this.city = city;
+        }
+    }
+
+    private static final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(BatchFetcher.daemonThreads("weather-group-window"));
+    // sends happen off the callers' threads, so a caller that times out cannot abort a shared request
+    private static final ExecutorService senders = Executors.newCachedThreadPool(BatchFetcher.daemonThreads("weather-group"));
+
+    private final WeatherProvider provider;
+    private final int maxIds;
+    private final long windowMs;
+
+    private List<Pending> open = new ArrayList<>();  // guarded by this
+
+    public GroupBatcher(WeatherProvider provider, int maxIds, long windowMs) {
+        this.provider = provider;
+        this.maxIds = Math.max(1, maxIds);
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /** Current weather JSON of one city, fetched together with the other ids requested in the same window. */
+    public Optional<String> current(long id, String city, long timeoutMillis) {
+        Pending p = new Pending(id, city);
+        List<Pending> full = null;
+        synchronized (this) {
+            open.add(p);
+            if (open.size() >= maxIds) {
+                full = open;
+                open = new ArrayList<>();
+            } else if (open.size() == 1) {
+                List<Pending> window = open;
+                timer.schedule(() -> close(window), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) dispatch(full);
+        try {
+            return p.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Group fetch failed for " + city + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    // Window timer: send the batch unless it already went out because it filled up
+    private void close(List<Pending> window) {
+        synchronized (this) {
+            if (open != window) return;
+            open = new ArrayList<>();
+        }
+        dispatch(window);
+    }
+
+    private void dispatch(List<Pending> batch) {
+        senders.execute(() -> send(batch));
+    }
+
+    private void send(List<Pending> batch) {
+        Map<Long, String> byId = new HashMap<>();
+        try {
+            Set<Long> ids = new LinkedHashSet<>();
+            for (Pending p : batch) ids.add(p.id);
+            REQUESTS.increment();
+            IDS.add(ids.size());
+            Optional<String> body = provider.group(new ArrayList<>(ids));
+            if (body.isPresent()) byId = split(body.get());
+        } finally {
+            if (byId.isEmpty()) FAILED.increment();
+            for (Pending p : batch) {
+                String json = byId.get(p.id);
+                if (json != null) {
+                    p.result.complete(Optional.of(json));
+                } else if (byId.isEmpty()) {
+                    p.result.complete(Optional.empty());
+                } else {
+                    MISSING.increment();
+                    senders.execute(() -> p.result.complete(provider.current(p.city)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Objects of a group response by city id. Group entries carry the UTC offset under sys,
+     * so it is copied to the top-level "timezone" a data/2.5/weather response has.
+     */
+    static Map<Long, String> split(String body) {
+        Map<Long, String> byId = new HashMap<>();
+        try {
+            JsonArray list = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("list");
+            if (list == null) return byId;
+            for (JsonElement el : list) {
+                JsonObject obj = el.getAsJsonObject();
+                if (!obj.has("id")) continue;
+                JsonObject sys = obj.getAsJsonObject("sys");
+                if (!obj.has("timezone") && sys != null && sys.has("timezone")) obj.add("timezone", sys.get("timezone"));
+                byId.put(obj.get("id").getAsLong(), obj.toString());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Invalid group response: " + e.getMessage());
+        }
+        return byId;
+    }
+
+    public static String stats() {
+        long requests = REQUESTS.sum(), ids = IDS.sum();
+        return String.format("group requests=%d (failed=%d), ids=%d (%.1f per request), answered individually=%d",
+                requests, FAILED.sum(), ids, requests == 0 ? 0.0 : (double) ids / requests, MISSING.sum());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.weather;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * Values below 32 get a bucket each; above that every power of two is split into 32
+ * linear sub-buckets, so any recorded value is reported within about 3% while the
+ * whole non-negative long range fits in under 2000 counters. Recording is an index
+ * computation and a few atomic adds, with no allocation and no locks.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    static int index(long v) {
+        if (v < SUB) return (int) Math.max(0, v);
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exp - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((v >>> shift) - SUB);
+    }
+
+    // highest value that maps to bucket i
+    static long upperBound(int i) {
+        if (i < SUB) return i;
+        int shift = i / SUB - 1;
+        long low = (long) (SUB + i % SUB) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    public void record(long value) {
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) { /* retry */ }
+    }
+
+    /** Records the nanoseconds elapsed since a System.nanoTime() reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() { return count.sum(); }
+    public long sum() { return sum.sum(); }
+    public long max() { return max.get(); }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /** Value at quantile q (0..1); approximate to the bucket width, exact for the maximum. */
+    public long percentile(double q) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.weather;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only history of observed current conditions, one row per city and fetch time.
+ * Rows live in monthly partition tables (obs_YYYYMM, UTC) clustered on (city, ts), so a
+ * range scan for one city is a contiguous index walk and retention drops whole months
+ * with a single DROP TABLE instead of deleting rows. Condition descriptions are stored
+ * as small integer codes. Writes are buffered and flushed in one transaction per batch.
+ * Kept in its own database file so history writes never queue behind the cache writer.
+ */
+public class HistoryStore {
+    private static final String PREFIX = "obs_";
+
+    /** One stored observation. */
+    public static final class Observation {
+        public final long ts;           // epoch seconds
+        public final double temp;
+        public final int humidity;      // -1 when missing
+        public final double wind;
+        public final String condition;  // "" when missing
+
+        Observation(long ts, double temp, int humidity, double wind, String condition) {
+            this.ts = ts;
+            this.temp = temp;
+            this.humidity = humidity;
+            this.wind = wind;
+            this.condition = condition == null ? "" : condition;
+        }
+    }
+
+    /** Downsampled interval starting at `start` (epoch seconds, UTC-aligned). */
+    public static final class Bucket {
+        public final long start;
+        public final double minTemp;
+        public final double maxTemp;
+        public final double avgHumidity;  // NaN when no sample had humidity
+        public final double maxWind;
+        public final int samples;
+
+        Bucket(long start, double minTemp, double maxTemp, double avgHumidity, double maxWind, int samples) {
+            this.start = start;
+            this.minTemp = minTemp;
+            this.maxTemp = maxTemp;
+            this.avgHumidity = avgHumidity;
+            this.maxWind = maxWind;
+            this.samples = samples;
+        }
+    }
+
+    private static final class Pending {
+        final String city;
+        final Observation obs;
+
+        Pending(String city, Observation obs) {
+            this.city = city;
+            this.obs = obs;
+        }
+    }
+
+    private static volatile SqlitePool pool;
+    private static volatile boolean openOnDemand;
+    private static ScheduledExecutorService flusher;
+    private static final List<Pending> buffer = new ArrayList<>();
+    private static final Object flushLock = new Object();
+    private static final Set<String> tables = ConcurrentHashMap.newKeySet();
+    private static final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    public static void init() {
+        init(Config.HISTORY_DB_PATH);
+    }
+
+    /** Opens the history database (no-op if already open), prunes old months and starts the flusher. */
+    public static synchronized void init(String dbPath) {
+        if (pool != null) return;
+        try {
+            SqlitePool p = new SqlitePool("jdbc:sqlite:" + dbPath, 2);
+            p.write(h -> {
+                try (Statement st = h.connection().createStatement()) {
+                    st.execute("CREATE TABLE IF NOT EXISTS conditions (code INTEGER PRIMARY KEY, text TEXT UNIQUE NOT NULL)");
+                    try (ResultSet rs = st.executeQuery("SELECT code, text FROM conditions")) {
+                        while (rs.next()) {
+                            codes.put(rs.getString(2), rs.getInt(1));
+                            names.put(rs.getInt(1), rs.getString(2));
+                        }
+                    }
+                    try (ResultSet rs = st.executeQuery(
+                            "SELECT name FROM sqlite_master WHERE type='table' AND name LIKE '" + PREFIX + "%'")) {
+                        while (rs.next()) tables.add(rs.getString(1));
+                    }
+                }
+                return null;
+            });
+            pool = p;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        prune(Instant.now().getEpochSecond());
+        flusher = Executors.newSingleThreadScheduledExecutor(BatchFetcher.daemonThreads("weather-history"));
+        flusher.scheduleWithFixedDelay(HistoryStore::flush,
+                Config.HISTORY_FLUSH_SECONDS, Config.HISTORY_FLUSH_SECONDS, TimeUnit.SECONDS);
+        flusher.scheduleWithFixedDelay(() -> prune(Instant.now().getEpochSecond()), 6, 6, TimeUnit.HOURS);
+        Runtime.getRuntime().addShutdownHook(new Thread(HistoryStore::close, "history-db-close"));
+    }
+
+    /** Defers init() to the first read or record, for runs that may never touch the history. */
+    public static void initLazily() {
+        openOnDemand = true;
+    }
+
+    private static SqlitePool open() {
+        SqlitePool p = pool;
+        if (p == null && openOnDemand) {
+            init();
+            p = pool;
+        }
+        return p;
+    }
+
+    public static synchronized void close() {
+        if (pool == null) return;
+        if (flusher != null) flusher.shutdownNow();
+        flush();
+        pool.close();
+        pool = null;
+    }
+
+    public static boolean enabled() {
+        return pool != null;
+    }
+
+    /** Buffers the current conditions of a forecast; no-op until init() (or initLazily()) has been called. */
+    public static void record(String city, Forecast fc, long ts) {
+        if (fc == null || Double.isNaN(fc.temp) || open() == null) return;
+        Pending p = new Pending(CityResolver.cacheKey(city), new Observation(ts, fc.temp, fc.humidity, fc.wind, fc.description));
+        boolean full;
+        synchronized (buffer) {
+            buffer.add(p);
+            full = buffer.size() >= Config.HISTORY_BATCH;
+        }
+        if (full) flush();
+    }
+
+    /**
+     * Writes everything buffered so far in a single transaction. Flushes are serialized, so
+     * once this returns every record() made before the call is readable.
+     */
+    public static void flush() {
+        synchronized (flushLock) {
+            flushBuffered();
+        }
+    }
+
+    private static void flushBuffered() {
+        List<Pending> batch;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) return;
+            batch = new ArrayList<>(buffer);
+            buffer.clear();
+        }
+        SqlitePool p = pool;
+        if (p == null) return;
+        try {
+            p.write(h -> {
+                boolean auto = h.connection().getAutoCommit();
+                h.connection().setAutoCommit(false);
+                // codes and tables created by this transaction are only published once it commits
+                Map<String, Integer> newCodes = new HashMap<>();
+                Set<String> newTables = new HashSet<>();
+                try {
+                    Map<String, PreparedStatement> inserts = new HashMap<>();
+                    for (Pending e : batch) {
+                        String table = partition(e.obs.ts);
+                        ensureTable(h, table, newTables);
+                        PreparedStatement ps = inserts.get(table);
+                        if (ps == null) {
+                            ps = h.prepare("INSERT OR REPLACE INTO " + table
+                                    + " (city, ts, temp, humidity, wind, condition) VALUES (?,?,?,?,?,?)");
+                            inserts.put(table, ps);
+                        }
+                        ps.setString(1, e.city);
+                        ps.setLong(2, e.obs.ts);
+                        ps.setDouble(3, e.obs.temp);
+                        ps.setInt(4, e.obs.humidity);
+                        if (Double.isNaN(e.obs.wind)) ps.setNull(5, java.sql.Types.REAL);
+                        else ps.setDouble(5, e.obs.wind);
+                        ps.setInt(6, code(h, e.obs.condition, newCodes));
+                        ps.addBatch();
+                    }
+                    for (PreparedStatement ps : inserts.values()) ps.executeBatch();
+                    h.connection().commit();
+                    tables.addAll(newTables);
+                    for (Map.Entry<String, Integer> c : newCodes.entrySet()) {
+                        codes.put(c.getKey(), c.getValue());
+                        names.put(c.getValue(), c.getKey());
+                    }
+                } catch (SQLException ex) {
+                    h.connection().rollback();
+                    throw ex;
+                } finally {
+                    h.connection().setAutoCommit(auto);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("History write error: " + e.getMessage());
+        }
+    }
+
+    private static String partition(long ts) {
+        YearMonth m = YearMonth.from(Instant.ofEpochSecond(ts).atOffset(ZoneOffset.UTC));
+        return String.format("%s%04d%02d", PREFIX, m.getYear(), m.getMonthValue());
+    }
+
+    private static void ensureTable(SqlitePool.Handle h, String table, Set<String> created) throws SQLException {
+        if (tables.contains(table) || created.contains(table)) return;
+        try (Statement st = h.connection().createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS " + table + " (city TEXT NOT NULL, ts INTEGER NOT NULL, "
+                    + "temp REAL, humidity INTEGER, wind REAL, condition INTEGER, PRIMARY KEY (city, ts)) WITHOUT ROWID");
+        }
+        created.add(table);
+    }
+
+    private static int code(SqlitePool.Handle h, String condition, Map<String, Integer> created) throws SQLException {
+        Integer c = codes.get(condition);
+        if (c == null) c = created.get(condition);
+        if (c != null) return c;
+        PreparedStatement ins = h.prepare("INSERT OR IGNORE INTO conditions (text) VALUES (?)");
+        ins.setString(1, condition);
+        ins.executeUpdate();
+        PreparedStatement sel = h.prepare("SELECT code FROM conditions WHERE text = ?");
+        sel.setString(1, condition);
+        try (ResultSet rs = sel.executeQuery()) {
+            rs.next();
+            c = rs.getInt(1);
+        }
+        created.put(condition, c);
+        return c;
+    }
+
+    // Partition tables that can hold rows in [from, to), oldest first
+    private static List<String> partitions(long from, long to) {
+        List<String> out = new ArrayList<>();
+        YearMonth m = YearMonth.from(Instant.ofEpochSecond(from).atOffset(ZoneOffset.UTC));
+        YearMonth last = YearMonth.from(Instant.ofEpochSecond(Math.max(from, to - 1)).atOffset(ZoneOffset.UTC));
+        for (; !m.isAfter(last); m = m.plusMonths(1)) {
+            String t = String.format("%s%04d%02d", PREFIX, m.getYear(), m.getMonthValue());
+            if (tables.contains(t)) out.add(t);
+        }
+        return out;
+    }
+
+    /** Observations for a city with from <= ts < to, in time order. Pending writes are flushed first. */
+    public static List<Observation> range(String city, long from, long to) {
+        List<Observation> out = new ArrayList<>();
+        scan(city, from, to, out::add);
+        return out;
+    }
+
+    /** Streams the same rows as range() to a callback, one partition at a time, without collecting them. */
+    public static void scan(String city, long from, long to, Consumer<Observation> sink) {
+        SqlitePool p = open();
+        if (p == null) return;
+        flush();
+        String key = CityResolver.cacheKey(city);
+        try {
+            for (String table : partitions(from, to)) {
+                p.read(h -> {
+                    PreparedStatement ps = h.prepare("SELECT ts, temp, humidity, wind, condition FROM " + table
+                            + " WHERE city = ? AND ts >= ? AND ts < ? ORDER BY ts");
+                    ps.setString(1, key);
+                    ps.setLong(2, from);
+                    ps.setLong(3, to);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            double wind = rs.getDouble(4);
+                            if (rs.wasNull()) wind = Double.NaN;
+                            sink.accept(new Observation(rs.getLong(1), rs.getDouble(2), rs.getInt(3), wind,
+                                    names.get(rs.getInt(5))));
+                        }
+                    }
+                    return null;
+                });
+            }
+        } catch (SQLException e) {
+            System.err.println("History read error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Aggregates a city's observations into fixed UTC-aligned intervals (e.g. 86400 for daily
+     * min/max). The grouping runs inside SQLite, so only one row per interval is read back.
+     */
+    public static List<Bucket> downsample(String city, long from, long to, long bucketSeconds) {
+        List<Bucket> out = new ArrayList<>();
+        SqlitePool p = open();
+        if (p == null || bucketSeconds <= 0) return out;
+        flush();
+        String key = CityResolver.cacheKey(city);
+        try {
+            for (String table : partitions(from, to)) {
+                p.read(h -> {
+                    PreparedStatement ps = h.prepare("SELECT ts / ?1 * ?1 AS b, MIN(temp), MAX(temp), "
+                            + "AVG(CASE WHEN humidity >= 0 THEN humidity END), MAX(wind), COUNT(*) FROM " + table
+                            + " WHERE city = ?2 AND ts >= ?3 AND ts < ?4 GROUP BY b ORDER BY b");
+                    ps.setLong(1, bucketSeconds);
+                    ps.setString(2, key);
+                    ps.setLong(3, from);
+                    ps.setLong(4, to);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            double hum = rs.getDouble(4);
+                            if (rs.wasNull()) hum = Double.NaN;
+                            double wind = rs.getDouble(5);
+                            if (rs.wasNull()) wind = Double.NaN;
+                            merge(out, new Bucket(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), hum, wind, rs.getInt(6)));
+                        }
+                    }
+                    return null;
+                });
+            }
+        } catch (SQLException e) {
+            System.err.println("History read error: " + e.getMessage());
+        }
+        return out;
+    }
+
+    // An interval longer than a day can straddle two monthly partitions; combine its halves
+    private static void merge(List<Bucket> out, Bucket b) {
+        int last = out.size() - 1;
+        if (last < 0 || out.get(last).start != b.start) {
+            out.add(b);
+            return;
+        }
+        Bucket a = out.get(last);
+        int n = a.samples + b.samples;
+        double hum = Double.isNaN(a.avgHumidity) ? b.avgHumidity
+                : Double.isNaN(b.avgHumidity) ? a.avgHumidity
+                : (a.avgHumidity * a.samples + b.avgHumidity * b.samples) / n;
+        double wind = Double.isNaN(a.maxWind) ? b.maxWind : Double.isNaN(b.maxWind) ? a.maxWind : Math.max(a.maxWind, b.maxWind);
+        out.set(last, new Bucket(a.start, Math.min(a.minTemp, b.minTemp), Math.max(a.maxTemp, b.maxTemp), hum, wind, n));
+    }
+
+    /** Drops every monthly partition older than the retention window; returns how many were dropped. */
+    public static int prune(long nowSeconds) {
+        SqlitePool p = pool;
+        if (p == null) return 0;
+        YearMonth now = YearMonth.from(Instant.ofEpochSecond(nowSeconds).atOffset(ZoneOffset.UTC));
+        YearMonth oldestKept = now.minusMonths(Math.max(0, Config.HISTORY_RETENTION_MONTHS - 1));
+        String cutoff = String.format("%s%04d%02d", PREFIX, oldestKept.getYear(), oldestKept.getMonthValue());
+        int dropped = 0;
+        for (String table : new ArrayList<>(tables)) {
+            if (table.compareTo(cutoff) >= 0) continue;
+            try {
+                p.write(h -> {
+                    try (Statement st = h.connection().createStatement()) {
+                        st.execute("DROP TABLE IF EXISTS " + table);
+                    }
+                    return null;
+                });
+                tables.remove(table);
+                dropped++;
+            } catch (SQLException e) {
+                System.err.println("History prune error: " + e.getMessage());
+            }
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.weather;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reusable HTTP GET transport for the upstream API.
+ * Connections are left to the JDK keep-alive cache (the body is always drained and the
+ * stream closed, never disconnect()), responses are requested gzip-compressed and
+ * inflated as a stream, and the body is read straight into a byte array sized from
+ * Content-Length instead of line by line.
+ */
+public class HttpTransport {
+
+    static {
+        // JDK default keeps only 5 idle connections per host; batch fetches use more
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(Math.max(5, Config.BATCH_PARALLELISM * 2)));
+        }
+    }
+
+    /** Status code, decoded body, the number of bytes that actually crossed the wire and any Retry-After header. */
+    public static final class Response {
+        public final int code;
+        public final byte[] body;
+        public final int length;
+        public final long wireBytes;
+        public final String retryAfter;
+
+        Response(int code, byte[] body, int length, long wireBytes, String retryAfter) {
+            this.code = code;
+            this.body = body;
+            this.length = length;
+            this.wireBytes = wireBytes;
+            this.retryAfter = retryAfter;
+        }
+
+        public String bodyAsString() {
+            return new String(body, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static Response get(String urlStr, int timeoutMillis) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
+        conn.setRequestMethod("GET");
+        conn.setConnectTimeout(timeoutMillis);
+        conn.setReadTimeout(timeoutMillis);
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setRequestProperty("Accept", "application/json");
+
+        int code = conn.getResponseCode();
+        String retryAfter = conn.getHeaderField("Retry-After");
+        InputStream raw = (code >= 200 && code < 400) ? conn.getInputStream() : conn.getErrorStream();
+        if (raw == null) return new Response(code, new byte[0], 0, 0, retryAfter);
+
+        CountingInputStream counted = new CountingInputStream(raw);
+        boolean gzip = "gzip".equalsIgnoreCase(conn.getContentEncoding());
+        long contentLength = conn.getContentLengthLong();
+        // compressed JSON inflates roughly 5-10x
+        int sizeHint = contentLength > 0 ? (int) Math.min(contentLength * (gzip ? 8 : 1), 1 << 24) : 16 * 1024;
+        try (InputStream in = gzip ? new GZIPInputStream(counted, 8192) : counted) {
+            byte[] buf = new byte[Math.max(sizeHint, 1024)];
+            int len = 0;
+            int n;
+            while ((n = in.read(buf, len, buf.length - len)) != -1) {
+                len += n;
+                if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            return new Response(code, buf, len, counted.count, retryAfter);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
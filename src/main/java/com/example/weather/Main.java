@@ -1,19 +1,88 @@
 package com.example.weather;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.List;
+import java.util.Map;
 
 public class Main {
+    private static final Histogram FIRST_RESULT = Metrics.timer("startup.first_result");
+
     public static void main(String[] args) {
-        System.out.println("Smart Weather Forecasting App (Console) - Enhanced");
+        long started = System.nanoTime();
+        // Single-shot mode: any arguments that are not a --option name the city
+        boolean singleShot = args.length > 0 && !args[0].startsWith("--");
+        if (!singleShot) System.out.println("Smart Weather Forecasting App (Console) - Enhanced");
         if (Config.API_KEY == null || Config.API_KEY.trim().isEmpty() || Config.API_KEY.contains("<PUT_YOUR_KEY_HERE>")) {
             System.err.println("ERROR: Set your OpenWeather API key in Config or environment variable OPENWEATHER_API_KEY.");
             return;
         }
 
-        CacheDB.init();
+        // Hot entries from the previous run go straight into L1; SQLite is only opened when something misses
+        if (Config.SNAPSHOT_ENTRIES > 0) {
+            Path snapshot = Paths.get(Config.SNAPSHOT_PATH);
+            CacheSnapshot.load(snapshot);
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> CacheSnapshot.save(snapshot, Config.SNAPSHOT_ENTRIES), "cache-snapshot"));
+        }
+        HistoryStore.initLazily();
         AlertManager alerts = new AlertManager();
+
+        if (singleShot) {
+            if (!lookupOnce(String.join(" ", args), alerts, started)) System.exit(1);
+            return;
+        }
+        if (args.length > 0) {
+            // headless modes run for long; open both databases up front
+            CacheDB.init();
+            HistoryStore.init();
+        } else {
+            openInBackground();
+        }
+
+        // Headless mode: --daemon <watchlist file>
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            if (args.length < 2) {
+                System.err.println("Usage: --daemon <watchlist file>");
+                return;
+            }
+            try {
+                new PollingDaemon(readCityList(args[1]), alerts).run();
+            } catch (IOException e) {
+                System.err.println("Cannot read watchlist: " + e.getMessage());
+            }
+            return;
+        }
+
+        WeatherService.startRefreshAhead();
+
+        // HTTP API mode: --serve [port]
+        if (args.length > 0 && args[0].equals("--serve")) {
+            try {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : Config.SERVER_PORT;
+                WeatherServer server = new WeatherServer(port, alerts);
+                server.start();
+                System.out.println("Serving /weather/{city}, /daily/{city}, /alerts/{city} on port " + server.port());
+                Thread.currentThread().join();
+            } catch (NumberFormatException e) {
+                System.err.println("Usage: --serve [port]");
+            } catch (IOException e) {
+                System.err.println("Cannot start server: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
         Scanner sc = new Scanner(System.in);
 
         printHelp();
@@ -26,6 +95,37 @@ public class Main {
 
             if (cmd.equals("exit")) break;
             if (cmd.equals("help")) { printHelp(); continue; }
+            if (cmd.equals("cache")) {
+                System.out.println("L1 cache: " + CacheDB.memory().stats());
+                SingleFlight<BatchFetcher.Result> sf = WeatherService.inflight();
+                System.out.printf("Upstream fetches: %d executed, %d coalesced into in-flight fetches\n", sf.executed(), sf.coalesced());
+                System.out.println("Refresh: " + WeatherService.refreshStats());
+                System.out.println("Upstream: " + WeatherClient.provider().stats());
+                System.out.println("Batching: " + GroupBatcher.stats());
+                System.out.println("Cities: " + CityResolver.stats());
+                System.out.println("Alerts: " + alerts.tracker().stats());
+                continue;
+            }
+
+            // Metrics: stats [json|prom] | stats dump <file> (Prometheus text for *.prom, JSON otherwise)
+            if (cmd.equals("stats") || cmd.startsWith("stats ")) {
+                String[] parts = line.split("\\s+", 3);
+                String mode = parts.length > 1 ? parts[1].toLowerCase() : "";
+                if (mode.isEmpty()) System.out.print(Metrics.text());
+                else if (mode.equals("json")) System.out.println(Metrics.json());
+                else if (mode.equals("prom")) System.out.print(Metrics.prometheus());
+                else if (mode.equals("dump") && parts.length == 3) {
+                    String file = parts[2].trim();
+                    String body = file.endsWith(".prom") ? Metrics.prometheus() : Metrics.json();
+                    try {
+                        Files.write(Paths.get(file), body.getBytes(StandardCharsets.UTF_8));
+                        System.out.println("Metrics written to " + file);
+                    } catch (IOException e) {
+                        System.out.println("Could not write " + file + ": " + e.getMessage());
+                    }
+                } else System.out.println("Usage: stats [json|prom] | stats dump <file>");
+                continue;
+            }
 
             // Export CSV command: export <city>
             if (cmd.startsWith("export ")) {
@@ -34,20 +134,108 @@ public class Main {
                     System.out.println("Usage: export <city>");
                     continue;
                 }
-                Optional<String> cached = CacheDB.getCached(c);
+                Optional<CacheDB.Entry> cached = CacheDB.getEntry(c);
                 if (!cached.isPresent()) {
                     System.out.println("City not found in cache. Please fetch it first by typing the city name.");
                 } else {
-                    String msg = CSVExporter.export(c, cached.get());
+                    String msg = CSVExporter.export(c, cached.get().forecast());
                     System.out.println(msg);
                 }
                 continue;
             }
 
+            // Bulk export: bulk-export <city list> <output> [gzip] [split] [history <days>]
+            if (cmd.startsWith("bulk-export ")) {
+                String[] parts = line.substring(12).trim().split("\\s+");
+                if (parts.length < 2) {
+                    System.out.println("Usage: bulk-export <city list file> <output file or dir> [gzip] [split] [history <days>]");
+                    continue;
+                }
+                BulkExporter.Options opt = new BulkExporter.Options();
+                try {
+                    for (int i = 2; i < parts.length; i++) {
+                        String p = parts[i].toLowerCase();
+                        if (p.equals("gzip")) opt.gzip(true);
+                        else if (p.equals("split")) opt.perCity(true);
+                        else if (p.equals("history") && i + 1 < parts.length) {
+                            long now = Instant.now().getEpochSecond();
+                            opt.history(now - Long.parseLong(parts[++i]) * 86400, now + 1);
+                        } else throw new IllegalArgumentException(parts[i]);
+                    }
+                    BulkExporter.Summary s = BulkExporter.export(readCityList(parts[0]), new File(parts[1]), opt);
+                    System.out.printf("Exported %d rows for %d cities into %d file(s) in %d ms (%.0f rows/s).\n",
+                            s.rows, s.cities, s.files.size(), s.millis, s.rowsPerSecond());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown option: " + e.getMessage());
+                } catch (IOException e) {
+                    System.out.println("Export failed: " + e.getMessage());
+                }
+                continue;
+            }
+
+            // History: history <city> [days]
+            if (cmd.startsWith("history ")) {
+                String[] parts = line.substring(8).trim().split("\\s+");
+                int days = 7;
+                String c = line.substring(8).trim();
+                if (parts.length > 1 && parts[parts.length - 1].matches("\\d+")) {
+                    days = Integer.parseInt(parts[parts.length - 1]);
+                    c = c.substring(0, c.lastIndexOf(' ')).trim();
+                }
+                long now = Instant.now().getEpochSecond();
+                List<HistoryStore.Bucket> daily = HistoryStore.downsample(c, now - days * 86400L, now + 1, 86400);
+                if (daily.isEmpty()) System.out.println("No history for " + c + " yet.");
+                for (HistoryStore.Bucket b : daily) {
+                    System.out.printf(" %s  min %.1f°C  max %.1f°C  (%d samples)\n",
+                            LocalDate.ofEpochDay(b.start / 86400), b.minTemp, b.maxTemp, b.samples);
+                }
+                continue;
+            }
+
+            // Batch refresh: batch <file> (one city per line, '#' comments allowed)
+            if (cmd.startsWith("batch ")) {
+                String file = line.substring(6).trim();
+                List<String> cities;
+                try {
+                    cities = readCityList(file);
+                } catch (IOException e) {
+                    System.out.println("Cannot read city list: " + e.getMessage());
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                List<BatchFetcher.Result> results = BatchFetcher.fetchAll(cities, Config.BATCH_PARALLELISM, Config.FETCH_TIMEOUT_MS);
+                int ok = 0;
+                for (BatchFetcher.Result r : results) {
+                    if (r.ok()) {
+                        ok++;
+                        System.out.printf(" \u001B[32m✔\u001B[0m %s (%d ms)\n", r.city, r.millis);
+                        // edge-triggered: only alerts that started or stopped firing since the last refresh
+                        for (AlertTracker.Transition t : alerts.checkTransitions(r.city, r.forecast())) printTransition(t);
+                    } else {
+                        System.out.printf(" \u001B[31m✘\u001B[0m %s: %s\n", r.city, r.error);
+                    }
+                }
+                System.out.printf("Batch done: %d/%d cities refreshed in %d ms.\n", ok, results.size(), System.currentTimeMillis() - start);
+                continue;
+            }
+
+            // Dashboard: dashboard <file> (the watchlist format); one line per city, written at once
+            if (cmd.startsWith("dashboard ")) {
+                List<String> cities;
+                try {
+                    cities = readCityList(line.substring(10).trim());
+                } catch (IOException e) {
+                    System.out.println("Cannot read city list: " + e.getMessage());
+                    continue;
+                }
+                ForecastPrinter.printDashboard(BatchFetcher.lookupAll(cities, Config.BATCH_PARALLELISM));
+                continue;
+            }
+
             // Alert commands
             if (cmd.startsWith("alert ")) {
                 String body = line.substring(6).trim().toLowerCase();
-                if (body.isEmpty()) System.out.println("Usage: alert temp<20  OR alert temp>30  OR alert rain");
+                if (body.isEmpty()) System.out.println("Usage: alert temp<20  OR alert temp>30  OR alert rain  OR alert chennai:max@24h>35");
                 else {
                     boolean ok = alerts.addAlert(body);
                     if (ok) System.out.println("Alert added: " + body);
@@ -56,24 +244,24 @@ public class Main {
                 continue;
             }
             if (cmd.equals("alerts")) {
-                List<String> list = alerts.listAlerts();
+                Map<Integer, String> list = alerts.listAlerts();
                 if (list.isEmpty()) System.out.println("No alerts set.");
                 else {
                     System.out.println("Saved alerts:");
-                    for (int i = 0; i < list.size(); i++) {
-                        System.out.printf(" %d) %s\n", i+1, list.get(i));
+                    for (Map.Entry<Integer, String> a : list.entrySet()) {
+                        System.out.printf(" %d) %s\n", a.getKey(), a.getValue());
                     }
                 }
                 continue;
             }
             if (cmd.startsWith("remove ")) {
                 try {
-                    int idx = Integer.parseInt(cmd.substring(7).trim());
-                    boolean ok = alerts.removeAlert(idx);
-                    if (ok) System.out.println("Removed alert #" + idx);
-                    else System.out.println("Invalid alert index.");
+                    int id = Integer.parseInt(cmd.substring(7).trim());
+                    boolean ok = alerts.removeAlert(id);
+                    if (ok) System.out.println("Removed alert #" + id);
+                    else System.out.println("No alert with id " + id + ".");
                 } catch (NumberFormatException e) {
-                    System.out.println("Usage: remove <alert-number>");
+                    System.out.println("Usage: remove <alert-id>");
                 }
                 continue;
             }
@@ -88,41 +276,30 @@ public class Main {
                         + "{\"dt\":1700125200,\"main\":{\"temp\":28.0}}"
                         + "]}"
                         + "}";
-                CacheDB.put("sample", sampleJson);
-                ForecastPrinter.printSummaryCombined("SampleCity", sampleJson);
-                List<String> trig = alerts.checkAlerts("SampleCity", sampleJson);
+                Forecast sample = CacheDB.put("sample", sampleJson).forecast();
+                ForecastPrinter.printSummary("SampleCity", sample);
+                List<String> trig = alerts.checkAlerts("SampleCity", sample);
                 for (String t : trig) System.out.println("\u001B[31m[ALERT]\u001B[0m " + t);
                 continue;
             }
 
-            // Try cache
-            Optional<String> cached = CacheDB.getCached(line);
-            if (cached.isPresent()) {
-                System.out.println("Using cached data (fresh).");
-                ForecastPrinter.printSummaryCombined(line, cached.get());
-                List<String> trig = alerts.checkAlerts(line, cached.get());
-                for (String t : trig) System.out.println("\u001B[31m[ALERT]\u001B[0m " + t);
+            // Try cache, then fetch current + forecast via free endpoints (both requests in parallel)
+            BatchFetcher.Result fetched = WeatherService.lookup(line);
+            if (!fetched.ok()) {
+                System.out.println(fetched.error);
                 continue;
             }
-
-            // Fetch current + forecast via free endpoints
-            Optional<String> currentJson = WeatherClient.fetchCurrentByCity(line);
-            if (!currentJson.isPresent()) {
-                System.out.println("Failed to fetch current weather.");
-                continue;
-            }
-            Optional<String> forecastJson = WeatherClient.fetch5DayForecastByCity(line);
-            if (!forecastJson.isPresent()) {
-                System.out.println("Failed to fetch forecast.");
-                continue;
+            if (fetched.upstreamError != null) {
+                System.out.println(fetched.upstreamError + " Showing last cached data.");
+            } else if (fetched.fromCache) {
+                System.out.println(fetched.stale ? "Using cached data (stale, refreshing in background)." : "Using cached data (fresh).");
             }
 
-            String combined = "{\"current\":" + currentJson.get() + ",\"forecast\":" + forecastJson.get() + "}";
-            CacheDB.put(line, combined);
-            ForecastPrinter.printSummaryCombined(line, combined);
+            Forecast forecast = fetched.forecast();
+            ForecastPrinter.printSummary(line, forecast);
 
             // check alerts
-            List<String> triggered = alerts.checkAlerts(line, combined);
+            List<String> triggered = alerts.checkAlerts(line, forecast);
             for (String t : triggered) {
                 System.out.println("\u001B[31m[ALERT]\u001B[0m " + t);
             }
@@ -132,17 +309,86 @@ public class Main {
         System.out.println("Bye!");
     }
 
+    /** weather <city>: one summary (and any alerts it triggers), then exit; false when nothing could be shown. */
+    private static boolean lookupOnce(String city, AlertManager alerts, long started) {
+        BatchFetcher.Result r = WeatherService.lookup(city);
+        // a background refresh would not outlive this run, so a stale entry is refreshed before printing
+        if (r.ok() && r.stale && r.upstreamError == null) {
+            BatchFetcher.Result fresh = WeatherService.fetch(city, Config.FETCH_TIMEOUT_MS);
+            if (fresh.ok()) r = fresh;
+        }
+        if (!r.ok()) {
+            System.out.println(r.error);
+            return false;
+        }
+        if (r.upstreamError != null) System.out.println(r.upstreamError + " Showing last cached data.");
+        ForecastPrinter.printSummary(city, r.forecast());
+        firstResult(started);
+        for (String t : alerts.checkAlerts(city, r.forecast())) {
+            System.out.println("\u001B[31m[ALERT]\u001B[0m " + t);
+        }
+        return true;
+    }
+
+    // Opens both databases while the prompt waits for input; a lookup that comes first waits on the same init
+    private static void openInBackground() {
+        BatchFetcher.daemonThreads("weather-init").newThread(() -> {
+            try {
+                CacheDB.init();
+                HistoryStore.init();
+            } catch (RuntimeException e) {
+                System.err.println("Database init failed: " + e.getMessage());
+            }
+        }).start();
+    }
+
+    // Time from main() to the printed forecast of a single-shot run, kept as a metric and shown with
+    // -Dweather.startup.timing=true; the console is left out, its first result waits on whoever types
+    private static void firstResult(long started) {
+        FIRST_RESULT.recordSince(started);
+        if (Config.STARTUP_TIMING) {
+            System.err.printf("First result after %d ms (%d ms since JVM start)%n",
+                    (System.nanoTime() - started) / 1_000_000, ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+
+    private static void printTransition(AlertTracker.Transition t) {
+        if (t.fired) System.out.println("\u001B[31m[ALERT]\u001B[0m " + t.message);
+        else System.out.println("\u001B[32m[CLEARED]\u001B[0m " + t.message);
+    }
+
+    private static List<String> readCityList(String file) throws IOException {
+        List<String> cities = new ArrayList<>();
+        for (String l : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            l = l.trim();
+            if (!l.isEmpty() && !l.startsWith("#")) cities.add(l);
+        }
+        return cities;
+    }
+
     private static void printHelp() {
         System.out.println();
         System.out.println("Commands:");
         System.out.println("  <city name>          Fetch weather for city (eg: Tirupati)");
         System.out.println("  sample               Show local sample data");
+        System.out.println("  batch <file>         Refresh every city listed in file (one per line) concurrently;");
+        System.out.println("                       only alerts that fired or cleared since the last refresh are shown");
+        System.out.println("  dashboard <file>     One line per listed city (cached when fresh, fetched otherwise)");
+        System.out.println("  bulk-export <list> <out> [gzip] [split] [history <days>]");
+        System.out.println("                       Export every listed city's cached forecast (or stored history) to one CSV,");
+        System.out.println("                       or one file per city with 'split'");
+        System.out.println("  history <city> [days] Daily min/max of observed temperatures (default 7 days, UTC days)");
         System.out.println("  export <city>        Export cached city's 5-day forecast to CSV (city_forecast.csv)");
         System.out.println("  alert temp<20        Add alert when current temp < 20°C");
         System.out.println("  alert temp>30        Add alert when current temp > 30°C");
         System.out.println("  alert rain           Add alert when rain is expected in forecast");
-        System.out.println("  alerts               List saved alerts");
-        System.out.println("  remove <n>           Remove alert number n (see list)");
+        System.out.println("  alert humidity>90    Also: feels, wind, max, min; rain@12h / max@24h>35 for a window;");
+        System.out.println("                       prefix 'city:' to limit to one city (eg: chennai:temp>38)");
+        System.out.println("  alerts               List saved alerts with their ids");
+        System.out.println("  remove <id>          Remove alert by id (ids stay the same after removals)");
+        System.out.println("  cache                Show cache hit/miss/eviction and fetch coalescing counters");
+        System.out.println("  stats [json|prom]    Per-stage latency percentiles and counters (table, JSON or Prometheus text)");
+        System.out.println("  stats dump <file>    Write the metrics to a file (Prometheus text for *.prom, JSON otherwise)");
         System.out.println("  help                 Show this help");
         System.out.println("  exit                 Quit");
     }
@@ -0,0 +1,123 @@
+package com.example.weather;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-process first-level cache in front of CacheDB.
+ * Entries are kept in LRU order and bounded both by count and by an approximate
+ * byte budget; each entry also carries its own expiry time so it never outlives
+ * the matching SQLite row.
+ */
+public class MemoryCache<V> {
+
+    private static final class Node<V> {
+        final V value;
+        final long expiresAt; // epoch seconds
+        final long weight;
+
+        Node(V value, long expiresAt, long weight) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.weight = weight;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<String, Node<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public MemoryCache(int maxEntries, long maxBytes, ToLongFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /** Returns the live value for key or null; expired entries are dropped on access. */
+    public synchronized V get(String key, long nowSeconds) {
+        Node<V> n = map.get(key);
+        if (n == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (nowSeconds >= n.expiresAt) {
+            map.remove(key);
+            bytes -= n.weight;
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return n.value;
+    }
+
+    public synchronized void put(String key, V value, long expiresAt) {
+        if (maxEntries <= 0) return;
+        long w = weigher.applyAsLong(value);
+        if (w > maxBytes) {
+            // never let one oversized value flush the whole cache
+            invalidate(key);
+            return;
+        }
+        Node<V> old = map.put(key, new Node<>(value, expiresAt, w));
+        if (old != null) bytes -= old.weight;
+        bytes += w;
+        Iterator<Map.Entry<String, Node<V>>> it = map.entrySet().iterator();
+        while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, Node<V>> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            bytes -= eldest.getValue().weight;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        Node<V> old = map.remove(key);
+        if (old != null) bytes -= old.weight;
+    }
+
+    /** Up to `max` live entries, most recently used first. */
+    public synchronized List<Map.Entry<String, V>> hottest(int max, long nowSeconds) {
+        List<Map.Entry<String, V>> live = new ArrayList<>(map.size());
+        for (Map.Entry<String, Node<V>> e : map.entrySet()) {
+            if (nowSeconds < e.getValue().expiresAt) live.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().value));
+        }
+        Collections.reverse(live);
+        return live.size() > max ? new ArrayList<>(live.subList(0, max)) : live;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+    public long evictions() { return evictions.get(); }
+    public long expirations() { return expirations.get(); }
+
+    public String stats() {
+        long h = hits(), m = misses();
+        double ratio = (h + m) == 0 ? 0 : 100.0 * h / (h + m);
+        return String.format("entries=%d/%d bytes=%d/%d hits=%d misses=%d hitRatio=%.1f%% evictions=%d expired=%d",
+                size(), maxEntries, bytes(), maxBytes, h, m, ratio, evictions(), expirations());
+    }
+}
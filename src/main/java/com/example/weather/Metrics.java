@@ -0,0 +1,168 @@
+package com.example.weather;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide stage timings and counters.
+ * Timers are Histograms of nanoseconds; counters are LongAdders. Hot paths keep the
+ * instance they record into in a static field, so recording never touches the maps.
+ * Labeled counter families export their label to Prometheus and appear as "name.value"
+ * in the table and JSON. Snapshots are rendered as a console table, JSON, or Prometheus text exposition.
+ */
+public final class Metrics {
+    private static final Map<String, Histogram> timers = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Labeled> labeled = new ConcurrentHashMap<>();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private Metrics() {}
+
+    public static Histogram timer(String name) {
+        return timers.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Counters sharing one name, told apart by a small non-negative integer label such as an
+     * HTTP status. Values index an array, so counting needs no string or map lookup; values
+     * outside the array share one "other" slot. Only values seen so far are exported.
+     */
+    public static final class Labeled {
+        final String label;
+        private final LongAdder[] values;
+        private final LongAdder other = new LongAdder();
+
+        Labeled(String label, int size) {
+            this.label = label;
+            this.values = new LongAdder[size];
+            for (int i = 0; i < size; i++) values[i] = new LongAdder();
+        }
+
+        public LongAdder at(int value) {
+            return value >= 0 && value < values.length ? values[value] : other;
+        }
+
+        // label value -> count, for the values counted at least once
+        Map<String, Long> snapshot() {
+            Map<String, Long> out = new TreeMap<>();
+            for (int i = 0; i < values.length; i++) {
+                long n = values[i].sum();
+                if (n > 0) out.put(Integer.toString(i), n);
+            }
+            if (other.sum() > 0) out.put("other", other.sum());
+            return out;
+        }
+    }
+
+    /** A counter family labeled by values 0..size-1; see {@link Labeled}. */
+    public static Labeled labeled(String name, String label, int size) {
+        return labeled.computeIfAbsent(name, k -> new Labeled(label, size));
+    }
+
+    // plain counters plus one "name.value" entry per counted label value, for text and JSON
+    private static Map<String, Long> flatCounters() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) out.put(e.getKey(), e.getValue().sum());
+        for (Map.Entry<String, Labeled> e : labeled.entrySet()) {
+            for (Map.Entry<String, Long> v : e.getValue().snapshot().entrySet()) out.put(e.getKey() + "." + v.getKey(), v.getValue());
+        }
+        return out;
+    }
+
+    /** Human readable table of every timer and counter. */
+    public static String text() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %9s %10s %10s %10s %10s %10s%n", "stage", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(timers).entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(String.format("%-22s %9d %10s %10s %10s %10s %10s%n", e.getKey(), h.count(),
+                    duration(h.mean()), duration(h.percentile(0.5)), duration(h.percentile(0.99)),
+                    duration(h.percentile(0.999)), duration(h.max())));
+        }
+        for (Map.Entry<String, Long> e : flatCounters().entrySet()) {
+            sb.append(String.format("%-32s %d%n", e.getKey(), e.getValue()));
+        }
+        return sb.toString();
+    }
+
+    private static String duration(double nanos) {
+        if (nanos < 10_000) return String.format("%.0fns", nanos);
+        if (nanos < 10_000_000) return String.format("%.1fus", nanos / 1e3);
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    /** {"timers": {name: {count, mean_ns, p50_ns, ...}}, "counters": {name: n}} */
+    public static String json() {
+        StringWriter out = new StringWriter();
+        try (JsonWriter w = new JsonWriter(out)) {
+            w.beginObject();
+            w.name("timers").beginObject();
+            for (Map.Entry<String, Histogram> e : new TreeMap<>(timers).entrySet()) {
+                Histogram h = e.getValue();
+                w.name(e.getKey()).beginObject();
+                w.name("count").value(h.count());
+                w.name("sum_ns").value(h.sum());
+                w.name("mean_ns").value(Math.round(h.mean()));
+                w.name("p50_ns").value(h.percentile(0.5));
+                w.name("p90_ns").value(h.percentile(0.9));
+                w.name("p99_ns").value(h.percentile(0.99));
+                w.name("p999_ns").value(h.percentile(0.999));
+                w.name("max_ns").value(h.max());
+                w.endObject();
+            }
+            w.endObject();
+            w.name("counters").beginObject();
+            for (Map.Entry<String, Long> e : flatCounters().entrySet()) {
+                w.name(e.getKey()).value(e.getValue());
+            }
+            w.endObject();
+            w.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /** Prometheus text format: timers as summaries in seconds, counters as *_total. */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(timers).entrySet()) {
+            String name = "weather_" + sanitize(e.getKey()) + "_seconds";
+            Histogram h = e.getValue();
+            sb.append("# TYPE ").append(name).append(" summary\n");
+            for (double q : QUANTILES) {
+                sb.append(name).append("{quantile=\"").append(q).append("\"} ").append(h.percentile(q) / 1e9).append('\n');
+            }
+            sb.append(name).append("_sum ").append(h.sum() / 1e9).append('\n');
+            sb.append(name).append("_count ").append(h.count()).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            String name = "weather_" + sanitize(e.getKey()) + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(e.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, Labeled> e : new TreeMap<>(labeled).entrySet()) {
+            String name = "weather_" + sanitize(e.getKey()) + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            for (Map.Entry<String, Long> v : e.getValue().snapshot().entrySet()) {
+                sb.append(name).append('{').append(e.getValue().label).append("=\"").append(v.getKey()).append("\"} ")
+                        .append(v.getValue()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.weather;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The OpenWeather HTTP API (or anything serving the same paths) under a base URL.
+ * Each endpoint has its own circuit breaker and a timeout that adapts to its recent
+ * latency. 5xx and 429 responses are retried with jittered exponential backoff (or
+ * after Retry-After when the server sends one) while a shared retry budget allows it.
+ */
+public class OpenWeatherProvider implements WeatherProvider {
+    private static final long BACKOFF_BASE_MS = 200;
+    private static final long BACKOFF_MAX_MS = 5000;
+    private static final Histogram HTTP = Metrics.timer("upstream.http");
+    private static final LongAdder BYTES = Metrics.counter("upstream.bytes.wire");
+    private static final LongAdder DECODED = Metrics.counter("upstream.bytes.decoded");
+    // indexed by status code; exported as weather_upstream_status_total{code="..."}
+    private static final Metrics.Labeled STATUS = Metrics.labeled("upstream.status", "code", 600);
+    private static final LongAdder IO_ERRORS = Metrics.counter("upstream.status.io_error");
+    private static final LongAdder REJECTED = Metrics.counter("upstream.breaker.rejected");
+
+    /** Breaker, timeout and counters for one upstream path. */
+    private static final class Endpoint {
+        final String name;
+        final CircuitBreaker breaker = new CircuitBreaker(Config.BREAKER_FAILURES, Config.BREAKER_OPEN_MS);
+        final AdaptiveTimeout timeout = new AdaptiveTimeout(256, Config.HTTP_MIN_TIMEOUT_MS, Config.HTTP_TIMEOUT_MS);
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+    }
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final Endpoint current = new Endpoint("weather");
+    private final Endpoint forecast = new Endpoint("forecast");
+    private final Endpoint group = new Endpoint("group");
+    private final RetryBudget budget = new RetryBudget(Config.RETRY_BUDGET_RATIO, 10);
+
+    public OpenWeatherProvider(String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public Optional<String> current(String city) {
+        return get(current, city);
+    }
+
+    @Override
+    public Optional<String> forecast(String city) {
+        return get(forecast, city);
+    }
+
+    @Override
+    public boolean supportsGroup() {
+        return true;
+    }
+
+    @Override
+    public Optional<String> group(List<Long> ids) {
+        StringBuilder list = new StringBuilder();
+        for (Long id : ids) {
+            if (list.length() > 0) list.append(',');
+            list.append(id);
+        }
+        try {
+            String url = String.format("%s/%s?id=%s&units=metric&appid=%s",
+                    baseUrl, group.name, list, URLEncoder.encode(apiKey, "UTF-8"));
+            return Optional.ofNullable(httpGet(group, url));
+        } catch (UnsupportedEncodingException e) {
+            System.err.println("Encoding error: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // by city id or coordinates when CityResolver knows them, by name otherwise
+    private Optional<String> get(Endpoint ep, String city) {
+        try {
+            String url = String.format(
+                    "%s/%s?%s&units=metric&appid=%s",
+                    baseUrl,
+                    ep.name,
+                    CityResolver.query(city),
+                    URLEncoder.encode(apiKey, "UTF-8")
+            );
+            return Optional.ofNullable(httpGet(ep, url));
+        } catch (UnsupportedEncodingException e) {
+            System.err.println("Encoding error: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // HTTP GET over the shared keep-alive/gzip transport, guarded by the endpoint's breaker
+    private String httpGet(Endpoint ep, String urlStr) {
+        budget.onAttempt();
+        for (int attempt = 0; ; attempt++) {
+            if (!ep.breaker.allowRequest()) {
+                REJECTED.increment();
+                System.err.println("Upstream " + ep.name + " circuit open; failing fast.");
+                return null;
+            }
+            ep.requests.incrementAndGet();
+            long start = System.nanoTime();
+            HttpTransport.Response resp;
+            try {
+                resp = HttpTransport.get(urlStr, ep.timeout.timeoutMillis());
+            } catch (IOException e) {
+                HTTP.recordSince(start);
+                IO_ERRORS.increment();
+                ep.failures.incrementAndGet();
+                ep.breaker.onFailure();
+                System.err.println("HTTP request failed: " + e.getMessage());
+                return null;
+            }
+            HTTP.recordSince(start);
+            STATUS.at(resp.code).increment();
+            BYTES.add(resp.wireBytes);
+            DECODED.add(resp.length);
+            if (resp.code == 200) {
+                ep.breaker.onSuccess();
+                ep.timeout.record((System.nanoTime() - start) / 1_000_000);
+                return resp.bodyAsString();
+            }
+            if (resp.code != 429 && resp.code < 500) {
+                // the upstream answered properly (e.g. 404 unknown city); not a health problem
+                ep.breaker.onSuccess();
+                System.err.println("HTTP " + resp.code + " response: " + resp.bodyAsString());
+                return null;
+            }
+            ep.failures.incrementAndGet();
+            ep.breaker.onFailure();
+            long wait = backoffMillis(attempt, resp.retryAfter);
+            if (attempt + 1 >= Config.RETRY_MAX_ATTEMPTS || wait > BACKOFF_MAX_MS || !budget.tryRetry()) {
+                System.err.println("HTTP " + resp.code + " response: " + resp.bodyAsString());
+                return null;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    // Full jitter: uniform in [0, base * 2^attempt], unless the server asked for a specific delay
+    static long backoffMillis(int attempt, String retryAfter) {
+        long asked = retryAfterMillis(retryAfter);
+        if (asked >= 0) return asked;
+        long cap = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt, 10));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /** Retry-After as delay-seconds or an HTTP date, in millis from now; -1 when absent or unreadable. */
+    static long retryAfterMillis(String value) {
+        if (value == null || value.trim().isEmpty()) return -1;
+        String v = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(v) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                Instant at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return Math.max(0, at.toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public String stats() {
+        return stats(current) + "; " + stats(forecast) + "; " + stats(group)
+                + String.format("; retries=%d, retry budget exhausted=%d", budget.retries(), budget.exhausted());
+    }
+
+    private static String stats(Endpoint ep) {
+        return String.format("%s: breaker=%s (opened %d, rejected %d), requests=%d, failures=%d, timeout=%d ms, p50=%d ms, p99=%d ms",
+                ep.name, ep.breaker.state(), ep.breaker.opened(), ep.breaker.rejected(), ep.requests.get(),
+                ep.failures.get(), ep.timeout.timeoutMillis(), ep.timeout.percentile(0.5), ep.timeout.percentile(0.99));
+    }
+}
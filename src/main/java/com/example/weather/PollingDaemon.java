@@ -0,0 +1,122 @@
+package com.example.weather;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless mode: keeps every city of a watchlist fresh without anyone typing.
+ * Cities wait in a DelayQueue ordered by when their cache entry goes stale, so the city
+ * nearest to expiry is always refreshed first. Every refresh takes its two upstream calls
+ * from a RateLimiter sized to the OpenWeather per-minute quota, which also spreads a cold
+ * start over time instead of bursting. Alert transitions are checked after each refresh.
+ */
+public class PollingDaemon {
+    // each refresh is a current-weather call plus a forecast call
+    private static final int CALLS_PER_REFRESH = 2;
+
+    private static final class Job implements Delayed {
+        final String city;
+        final long dueAt;      // epoch millis
+        final int failures;
+
+        Job(String city, long dueAt, int failures) {
+            this.city = city;
+            this.dueAt = dueAt;
+            this.failures = failures;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(dueAt, ((Job) o).dueAt);
+        }
+    }
+
+    private final DelayQueue<Job> queue = new DelayQueue<>();
+    private final RateLimiter limiter = new RateLimiter(Config.QUOTA_PER_MINUTE, CALLS_PER_REFRESH);
+    private final ExecutorService workers = Executors.newFixedThreadPool(
+            Config.BATCH_PARALLELISM, BatchFetcher.daemonThreads("weather-daemon"));
+    private final AlertManager alerts;
+
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public PollingDaemon(List<String> cities, AlertManager alerts) {
+        this.alerts = alerts;
+        long now = System.currentTimeMillis();
+        for (String city : cities) {
+            // cities already cached wait until their entry is about to go stale
+            Optional<CacheDB.Entry> entry = CacheDB.getEntry(city);
+            long due = entry.isPresent() ? nextDue(entry.get().fetchedAt) : now;
+            queue.add(new Job(city, due, 0));
+        }
+        double needed = cities.size() * CALLS_PER_REFRESH * 60.0 / refreshEverySeconds();
+        if (needed > Config.QUOTA_PER_MINUTE) {
+            System.err.printf("Warning: %d cities need %.0f calls/min but the quota is %d; refreshes will lag.\n",
+                    cities.size(), needed, Config.QUOTA_PER_MINUTE);
+        }
+    }
+
+    private static long refreshEverySeconds() {
+        return Math.max(1, Config.SOFT_TTL_SECONDS - Config.REFRESH_AHEAD_LEAD_SECONDS);
+    }
+
+    private static long nextDue(long fetchedAtSeconds) {
+        return (fetchedAtSeconds + refreshEverySeconds()) * 1000;
+    }
+
+    /** Runs until the thread is interrupted. */
+    public void run() {
+        log(String.format("Watching %d cities, quota %d calls/min.", queue.size(), Config.QUOTA_PER_MINUTE));
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Job job = queue.take();
+                limiter.acquire(CALLS_PER_REFRESH);
+                workers.execute(() -> refresh(job));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void refresh(Job job) {
+        BatchFetcher.Result r = WeatherService.fetch(job.city, Config.FETCH_TIMEOUT_MS);
+        if (r.ok()) {
+            refreshed.incrementAndGet();
+            queue.add(new Job(job.city, nextDue(Instant.now().getEpochSecond()), 0));
+            log(String.format("refreshed %s (%d ms)", job.city, r.millis));
+            for (AlertTracker.Transition t : alerts.checkTransitions(job.city, r.forecast())) {
+                log((t.fired ? "[ALERT] " : "[CLEARED] ") + t.message);
+            }
+        } else {
+            failed.incrementAndGet();
+            // back off 30s, 60s, 120s ... but never wait longer than a normal refresh period
+            long backoff = Math.min(refreshEverySeconds(), 30L << Math.min(job.failures, 10));
+            queue.add(new Job(job.city, System.currentTimeMillis() + backoff * 1000, job.failures + 1));
+            System.err.println(LocalTime.now().withNano(0) + " failed " + job.city + ": " + r.error
+                    + " (retry in " + backoff + "s)");
+        }
+    }
+
+    private static void log(String msg) {
+        System.out.println(LocalTime.now().withNano(0) + " " + msg);
+    }
+
+    public String stats() {
+        return String.format("refreshed=%d, failed=%d, queued=%d", refreshed.get(), failed.get(), queue.size());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.weather;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket for the upstream request quota.
+ * Tokens refill continuously at perMinute / 60 per second up to `burst`, so with a small
+ * burst the requests are spread evenly over the minute instead of going out all at once.
+ * Callers reserve permits first and then sleep for their turn, which keeps the order fair.
+ */
+public class RateLimiter {
+    private final double perNano;
+    private final double capacity;
+    private double tokens;
+    private long last;
+
+    public RateLimiter(int perMinute, int burst) {
+        this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.last = System.nanoTime();
+    }
+
+    /** Takes the permits (possibly going into debt) and returns how long to wait, in nanos. */
+    synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - last) * perNano);
+        last = now;
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) (-tokens / perNano);
+    }
+
+    /** Blocks until the permits are available. */
+    public void acquire(int permits) throws InterruptedException {
+        long wait = reserve(permits);
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.weather;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries at a fraction of first attempts so a struggling upstream does not
+ * receive a multiple of the normal load. Every first attempt deposits `ratio` tokens
+ * (up to `maxTokens`) and every retry needs a whole token.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void onAttempt() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /** Takes a token for one retry; false when the budget is spent. */
+    public synchronized boolean tryRetry() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            retries.incrementAndGet();
+            return true;
+        }
+        exhausted.incrementAndGet();
+        return false;
+    }
+
+    public long retries() { return retries.get(); }
+    public long exhausted() { return exhausted.get(); }
+}
@@ -0,0 +1,124 @@
+package com.example.weather;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections for the cache.
+ * A small pool of read-only connections serves concurrent lookups (WAL lets readers
+ * run alongside the writer) and a single writer connection is guarded by a lock,
+ * since SQLite only ever allows one writer at a time anyway.
+ * Every connection keeps its own prepared statements, so each SQL string is compiled once.
+ */
+public class SqlitePool implements AutoCloseable {
+
+    /** Unit of work run against a pooled connection. */
+    public interface Work<T> {
+        T run(Handle h) throws SQLException;
+    }
+
+    /** A pooled connection together with its prepared-statement cache. */
+    public static final class Handle {
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private Handle(Connection conn) {
+            this.conn = conn;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = conn.prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        public Connection connection() {
+            return conn;
+        }
+
+        private void close() {
+            for (PreparedStatement ps : statements.values()) {
+                try { ps.close(); } catch (SQLException ignored) {}
+            }
+            statements.clear();
+            try { conn.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    private final Handle writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<Handle> readers;
+    private final Handle[] allReaders;
+    private volatile boolean closed;
+
+    public SqlitePool(String url, int readerCount) throws SQLException {
+        writer = new Handle(open(url, false));
+        int n = Math.max(1, readerCount);
+        readers = new ArrayBlockingQueue<>(n);
+        allReaders = new Handle[n];
+        for (int i = 0; i < n; i++) {
+            allReaders[i] = new Handle(open(url, true));
+            readers.add(allReaders[i]);
+        }
+    }
+
+    private static Connection open(String url, boolean readOnly) throws SQLException {
+        Connection c = DriverManager.getConnection(url);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL"); // safe with WAL, avoids an fsync per commit
+            st.execute("PRAGMA busy_timeout=5000");
+            st.execute("PRAGMA temp_store=MEMORY");
+            if (readOnly) st.execute("PRAGMA query_only=1");
+        }
+        return c;
+    }
+
+    /** Runs work on one of the reader connections, waiting if all are busy. */
+    public <T> T read(Work<T> work) throws SQLException {
+        if (closed) throw new SQLException("Pool is closed");
+        Handle h;
+        try {
+            h = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", e);
+        }
+        try {
+            return work.run(h);
+        } finally {
+            readers.add(h);
+        }
+    }
+
+    /** Runs work on the single writer connection. */
+    public <T> T write(Work<T> work) throws SQLException {
+        if (closed) throw new SQLException("Pool is closed");
+        writeLock.lock();
+        try {
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        writeLock.lock();
+        try {
+            writer.close();
+        } finally {
+            writeLock.unlock();
+        }
+        for (Handle h : allReaders) h.close();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.weather;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline stand-in for OpenWeather that replays recorded payloads.
+ * Payloads come from a directory (current_<city>.json / forecast_<city>.json, falling back
+ * to current.json / forecast.json) or, without one, the bundled Chennai recording.
+ * Every call waits latency ± jitter ms and fails with the given probability, so caching,
+ * coalescing and timeouts can be exercised without network access or an API key.
+ * The bundled recording is given a city id and name derived from the requested city, so
+ * different cities still resolve to different locations (see CityResolver). Group requests
+ * wait and fail once for the whole call and answer only the ids this stub has handed out.
+ */
+public class StubProvider implements WeatherProvider {
+    private final Path dir;
+    private final String defaultCurrent;
+    private final String defaultForecast;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    // names handed out per synthetic id, so a later id= request answers with the same city
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+    public StubProvider(Path dir, long latencyMs, long jitterMs, double errorRate) {
+        this.dir = dir;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.defaultCurrent = fallback("current");
+        this.defaultForecast = fallback("forecast");
+    }
+
+    static StubProvider fromConfig() {
+        return new StubProvider(Config.STUB_DIR == null ? null : Paths.get(Config.STUB_DIR),
+                Config.STUB_LATENCY_MS, Config.STUB_JITTER_MS, Config.STUB_ERROR_RATE);
+    }
+
+    @Override
+    public Optional<String> current(String city) {
+        return replay("current", city, defaultCurrent);
+    }
+
+    @Override
+    public Optional<String> forecast(String city) {
+        return replay("forecast", city, defaultForecast);
+    }
+
+    @Override
+    public boolean supportsGroup() {
+        return true;
+    }
+
+    @Override
+    public Optional<String> group(List<Long> ids) {
+        if (!simulateCall("group", ids.toString())) return Optional.empty();
+        StringBuilder sb = new StringBuilder("{\"cnt\":");
+        int start = sb.length();
+        sb.append(",\"list\":[");
+        int n = 0;
+        for (Long id : ids) {
+            String recorded = dir == null ? null : read(dir.resolve("current_" + id + ".json"));
+            if (recorded == null && !names.containsKey(id)) continue;
+            if (n++ > 0) sb.append(',');
+            sb.append(recorded != null ? recorded.trim() : personalize(defaultCurrent, String.valueOf(id)));
+        }
+        return Optional.of(sb.insert(start, n).append("]}").toString());
+    }
+
+    private Optional<String> replay(String kind, String city, String fallback) {
+        if (!simulateCall(kind, city)) return Optional.empty();
+        String recorded = dir == null ? null : read(dir.resolve(kind + "_" + CacheDB.key(city).replace(' ', '_') + ".json"));
+        return Optional.ofNullable(recorded != null ? recorded : personalize(fallback, city));
+    }
+
+    // Latency and injected failures of one call; false when the call fails
+    private boolean simulateCall(String kind, String what) {
+        calls.incrementAndGet();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? rnd.nextLong(-jitterMs, jitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (errorRate > 0 && rnd.nextDouble() < errorRate) {
+            failures.incrementAndGet();
+            System.err.println("Stub: injected " + kind + " failure for " + what);
+            return false;
+        }
+        return true;
+    }
+
+    // The recording is Chennai (id 1264527); other names get a stable id of their own, coordinates keep Chennai
+    private String personalize(String payload, String city) {
+        String normalized = CityResolver.normalize(city);
+        String base = normalized.split(",")[0];
+        if (base.isEmpty() || base.equals("chennai") || CityResolver.coordinates(normalized) != null) return payload;
+        long id;
+        String name;
+        if (base.matches("\\d+")) {
+            id = Long.parseLong(base);
+            name = names.get(id);
+            if (name == null) return payload;
+        } else {
+            id = 10_000_000L + (base.hashCode() & 0x7fffffffL) % 90_000_000L;
+            name = city.split(",")[0].trim().replace("\\", "").replace("\"", "");
+            names.put(id, name);
+        }
+        return payload.replace("\"id\":1264527", "\"id\":" + id).replace("\"name\":\"Chennai\"", "\"name\":\"" + name + "\"");
+    }
+
+    private String fallback(String kind) {
+        String s = dir == null ? null : read(dir.resolve(kind + ".json"));
+        return s != null ? s : resource("fixtures/" + kind + "_chennai.json");
+    }
+
+    private static String read(Path p) {
+        if (!Files.isRegularFile(p)) return null;
+        try {
+            return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Stub: cannot read " + p + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = StubProvider.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("Missing stub payload " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read stub payload " + name, e);
+        }
+    }
+
+    public long calls() { return calls.get(); }
+    public long failures() { return failures.get(); }
+
+    @Override
+    public String stats() {
+        return String.format("calls=%d, injected failures=%d", calls.get(), failures.get());
+    }
+}
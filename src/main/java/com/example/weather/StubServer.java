@@ -0,0 +1,112 @@
+package com.example.weather;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Serves a StubProvider over HTTP on the OpenWeather paths (/data/2.5/weather,
+ * /data/2.5/forecast and /data/2.5/group), so a separate process can be pointed at it with
+ * -Dweather.api.baseUrl=http://localhost:PORT/data/2.5 and exercise the real HTTP path.
+ * Injected failures are answered with 503.
+ *
+ *   java -Dweather.stub.latencyMs=80 -Dweather.stub.errorRate=0.02 -cp ... com.example.weather.StubServer 9090
+ */
+public class StubServer {
+    private static final byte[] FAILURE = "{\"cod\":503,\"message\":\"stub: injected failure\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StubServer(int port, StubProvider provider) throws IOException {
+        // every request sleeps for the configured latency, so threads are cheap waiting slots
+        this.executor = Executors.newCachedThreadPool(BatchFetcher.daemonThreads("weather-stub"));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), Config.SERVER_BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/data/2.5/weather", ex -> handle(ex, provider::current));
+        server.createContext("/data/2.5/forecast", ex -> handle(ex, provider::forecast));
+        server.createContext("/data/2.5/group", ex -> respond(ex, provider.group(ids(query(ex.getRequestURI().getRawQuery(), "id")))));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Base URL to use as weather.api.baseUrl. */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + port() + "/data/2.5";
+    }
+
+    private static void handle(HttpExchange ex, Function<String, Optional<String>> source) throws IOException {
+        // the provider is asked by name, by city id, or by "lat,lon", whichever the client sent
+        String raw = ex.getRequestURI().getRawQuery();
+        String city = query(raw, "q");
+        if (city.isEmpty()) city = query(raw, "id");
+        if (city.isEmpty() && !query(raw, "lat").isEmpty()) city = query(raw, "lat") + "," + query(raw, "lon");
+        respond(ex, source.apply(city));
+    }
+
+    private static void respond(HttpExchange ex, Optional<String> body) throws IOException {
+        byte[] bytes = body.isPresent() ? body.get().getBytes(StandardCharsets.UTF_8) : FAILURE;
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(body.isPresent() ? 200 : 503, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    // "1,2,3" of a group request; unparseable ids are skipped
+    private static List<Long> ids(String list) {
+        List<Long> ids = new ArrayList<>();
+        for (String s : list.split(",")) {
+            try {
+                ids.add(Long.parseLong(s.trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return ids;
+    }
+
+    private static String query(String raw, String name) {
+        if (raw == null) return "";
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                try {
+                    return URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+                } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                    return "";
+                }
+            }
+        }
+        return "";
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        StubServer s = new StubServer(port, StubProvider.fromConfig());
+        s.start();
+        System.out.println("Stub OpenWeather on " + s.baseUrl());
+        Thread.currentThread().join();
+    }
+}
@@ -1,79 +1,49 @@
 package com.example.weather;
 
-import com.google.gson.*;
-import java.io.*;
-import java.net.*;
 import java.util.Optional;
 
+/**
+ * Entry point for upstream calls. Delegates to the configured WeatherProvider:
+ * OpenWeather at Config.API_BASE_URL by default, or the offline StubProvider
+ * with -Dweather.provider=stub. Current weather of cities that CityResolver knows by id is
+ * batched into group requests when the provider supports them (see GroupBatcher).
+ */
 public class WeatherClient {
-    private static final Gson gson = new Gson();
+    private static volatile WeatherProvider provider = defaultProvider();
+    private static volatile GroupBatcher batcher = batcherFor(provider);
+
+    private static WeatherProvider defaultProvider() {
+        if ("stub".equalsIgnoreCase(Config.PROVIDER)) return StubProvider.fromConfig();
+        return new OpenWeatherProvider(Config.API_BASE_URL, Config.API_KEY);
+    }
+
+    private static GroupBatcher batcherFor(WeatherProvider p) {
+        if (Config.GROUP_WINDOW_MS <= 0 || Config.GROUP_MAX_IDS <= 1 || !p.supportsGroup()) return null;
+        return new GroupBatcher(p, Config.GROUP_MAX_IDS, Config.GROUP_WINDOW_MS);
+    }
+
+    public static WeatherProvider provider() {
+        return provider;
+    }
+
+    /** Replaces the upstream for every later fetch (tests, load tests, alternative sources). */
+    public static void setProvider(WeatherProvider p) {
+        provider = p;
+        batcher = batcherFor(p);
+    }
 
     // Get current weather by city (data/2.5/weather)
     public static Optional<String> fetchCurrentByCity(String city) {
-        try {
-            String url = String.format(
-                    "https://api.openweathermap.org/data/2.5/weather?q=%s&units=metric&appid=%s",
-                    URLEncoder.encode(city, "UTF-8"),
-                    URLEncoder.encode(Config.API_KEY, "UTF-8")
-            );
-            String resp = httpGet(url);
-            if (resp == null) return Optional.empty();
-            return Optional.of(resp);
-        } catch (UnsupportedEncodingException e) {
-            System.err.println("Encoding error: " + e.getMessage());
-            return Optional.empty();
+        GroupBatcher b = batcher;
+        if (b != null) {
+            Optional<CityResolver.Location> loc = CityResolver.resolve(city);
+            if (loc.isPresent()) return b.current(loc.get().id, city, Config.FETCH_TIMEOUT_MS);
         }
+        return provider.current(city);
     }
 
     // Get 5-day / 3-hour forecast by city (data/2.5/forecast)
     public static Optional<String> fetch5DayForecastByCity(String city) {
-        try {
-            String url = String.format(
-                    "https://api.openweathermap.org/data/2.5/forecast?q=%s&units=metric&appid=%s",
-                    URLEncoder.encode(city, "UTF-8"),
-                    URLEncoder.encode(Config.API_KEY, "UTF-8")
-            );
-            String resp = httpGet(url);
-            if (resp == null) return Optional.empty();
-            return Optional.of(resp);
-        } catch (UnsupportedEncodingException e) {
-            System.err.println("Encoding error: " + e.getMessage());
-            return Optional.empty();
-        }
-    }
-
-    // Helper for HTTP GET using HttpURLConnection
-    private static String httpGet(String urlStr) {
-        HttpURLConnection conn = null;
-        BufferedReader reader = null;
-        try {
-            URL url = new URL(urlStr);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(15000);
-            conn.setReadTimeout(15000);
-
-            int code = conn.getResponseCode();
-            InputStream is = (code >= 200 && code < 400) ? conn.getInputStream() : conn.getErrorStream();
-            if (is == null) {
-                System.err.println("No response stream. HTTP code: " + code);
-                return null;
-            }
-            reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) sb.append(line);
-            if (code != 200) {
-                System.err.println("HTTP " + code + " response: " + sb.toString());
-                return null;
-            }
-            return sb.toString();
-        } catch (IOException e) {
-            System.err.println("HTTP request failed: " + e.getMessage());
-            return null;
-        } finally {
-            try { if (reader != null) reader.close(); } catch (IOException ignored) {}
-            if (conn != null) conn.disconnect();
-        }
+        return provider.forecast(city);
     }
 }
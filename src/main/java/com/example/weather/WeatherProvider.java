@@ -0,0 +1,35 @@
+package com.example.weather;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Source of raw upstream payloads in the OpenWeather response format.
+ * Implementations return empty on any failure and report it on System.err themselves.
+ */
+public interface WeatherProvider {
+
+    /** Current weather JSON for a city (data/2.5/weather). */
+    Optional<String> current(String city);
+
+    /** 5-day / 3-hour forecast JSON for a city (data/2.5/forecast). */
+    Optional<String> forecast(String city);
+
+    /** Whether group() is implemented; WeatherClient only batches current weather for providers that say so. */
+    default boolean supportsGroup() {
+        return false;
+    }
+
+    /**
+     * Current weather of several city ids in one call (data/2.5/group): {"cnt":n,"list":[...]}, one
+     * data/2.5/weather-shaped object per id the upstream knows.
+     */
+    default Optional<String> group(List<Long> ids) {
+        return Optional.empty();
+    }
+
+    /** One-line health and counter summary for the console. */
+    default String stats() {
+        return "";
+    }
+}
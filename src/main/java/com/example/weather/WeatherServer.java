@@ -0,0 +1,227 @@
+package com.example.weather;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only HTTP API over the cache, on the JDK's built-in server.
+ *   GET /weather/{city}  current conditions
+ *   GET /daily/{city}    per-day min/max of the forecast
+ *   GET /alerts/{city}   alert messages currently triggered for the city
+ *   GET /metrics         stage timings and counters in Prometheus text format
+ * Lookups go through WeatherService, so hot cities are answered from L1 and stale ones
+ * are refreshed in the background. Rendered response bodies are cached per endpoint and
+ * city together with the entry's fetchedAt (and the alert rule version), so repeated
+ * requests for an unchanged entry write the same bytes without serializing again.
+ * Freshness (fresh, stale, miss, or fallback when upstream failed) is reported in the X-Cache header rather than the body for that reason.
+ */
+public class WeatherServer {
+    private static final Histogram HANDLE = Metrics.timer("http.server");
+
+    private static final byte[] NOT_FOUND = "{\"error\":\"not found\"}".getBytes(StandardCharsets.UTF_8);
+
+    /** A rendered body and the versions it was rendered from. */
+    private static final class Rendered {
+        final long fetchedAt;
+        final int alertsVersion;
+        final byte[] body;
+
+        Rendered(long fetchedAt, int alertsVersion, byte[] body) {
+            this.fetchedAt = fetchedAt;
+            this.alertsVersion = alertsVersion;
+            this.body = body;
+        }
+    }
+
+    private interface Renderer {
+        void render(JsonWriter w, String city, Forecast fc) throws IOException;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AlertManager alerts;
+    private final MemoryCache<Rendered> rendered = new MemoryCache<>(
+            Config.L1_MAX_ENTRIES * 3, Config.L1_MAX_BYTES / 4, r -> 64 + r.body.length);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+
+    public WeatherServer(int port, AlertManager alerts) throws IOException {
+        this.alerts = alerts;
+        // handlers can block on an upstream fetch, so size the pool for waiting rather than for cores
+        this.executor = Executors.newFixedThreadPool(Config.SERVER_THREADS, BatchFetcher.daemonThreads("weather-http"));
+        this.server = HttpServer.create(new InetSocketAddress(port), Config.SERVER_BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/weather/", ex -> handle(ex, "weather", WeatherServer::renderCurrent));
+        server.createContext("/daily/", ex -> handle(ex, "daily", WeatherServer::renderDaily));
+        server.createContext("/alerts/", ex -> handle(ex, "alerts", this::renderAlerts));
+        server.createContext("/metrics", WeatherServer::metrics);
+        server.createContext("/", ex -> send(ex, 404, NOT_FOUND, null));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange ex, String endpoint, Renderer renderer) throws IOException {
+        long start = System.nanoTime();
+        try {
+            serve(ex, endpoint, renderer);
+        } finally {
+            HANDLE.recordSince(start);
+        }
+    }
+
+    private void serve(HttpExchange ex, String endpoint, Renderer renderer) throws IOException {
+        requests.incrementAndGet();
+        if (!"GET".equals(ex.getRequestMethod())) {
+            send(ex, 405, error("only GET is supported"), null);
+            return;
+        }
+        String city = city(ex.getRequestURI().getRawPath(), endpoint);
+        if (city.isEmpty()) {
+            send(ex, 404, NOT_FOUND, null);
+            return;
+        }
+
+        BatchFetcher.Result r = WeatherService.lookup(city);
+        if (!r.ok()) {
+            send(ex, 502, error(r.error), null);
+            return;
+        }
+        String cache = r.upstreamError != null ? "fallback" : r.fromCache ? (r.stale ? "stale" : "fresh") : "miss";
+        long fetchedAt = r.fetchedAt();
+        int alertsVersion = alerts.version();
+        String key = endpoint + ":" + CacheDB.key(city);
+        long now = Instant.now().getEpochSecond();
+
+        Rendered hit = rendered.get(key, now);
+        if (hit != null && hit.fetchedAt == fetchedAt && hit.alertsVersion == alertsVersion) {
+            send(ex, 200, hit.body, cache);
+            return;
+        }
+        byte[] body;
+        try {
+            body = render(renderer, city, r.forecast());
+        } catch (RuntimeException e) {
+            send(ex, 502, error("Invalid cached data: " + e.getMessage()), null);
+            return;
+        }
+        renders.incrementAndGet();
+        // results that were never stored have no version to check against, so are not kept
+        if (fetchedAt > 0) rendered.put(key, new Rendered(fetchedAt, alertsVersion, body), now + Config.HARD_TTL_SECONDS);
+        send(ex, 200, body, cache);
+    }
+
+    private static void metrics(HttpExchange ex) throws IOException {
+        byte[] body = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String city(String rawPath, String endpoint) {
+        String raw = rawPath.substring(endpoint.length() + 2);
+        if (raw.endsWith("/")) raw = raw.substring(0, raw.length() - 1);
+        try {
+            return URLDecoder.decode(raw, "UTF-8").trim();
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static byte[] render(Renderer renderer, String city, Forecast fc) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonWriter w = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            renderer.render(w, city, fc);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void renderCurrent(JsonWriter w, String city, Forecast fc) throws IOException {
+        w.beginObject();
+        w.name("city").value(city);
+        number(w.name("temp"), fc.temp);
+        number(w.name("feels_like"), fc.feelsLike);
+        if (fc.humidity >= 0) w.name("humidity").value(fc.humidity);
+        number(w.name("wind"), fc.wind);
+        w.name("description").value(fc.description);
+        w.name("rain_expected").value(fc.rainExpected());
+        w.endObject();
+    }
+
+    private static void renderDaily(JsonWriter w, String city, Forecast fc) throws IOException {
+        w.beginObject();
+        w.name("city").value(city);
+        w.name("days").beginArray();
+        for (int d = 0; d < fc.days(); d++) {
+            w.beginObject();
+            w.name("date").value(fc.dayLabel(d));
+            number(w.name("min"), fc.dayMin(d));
+            number(w.name("max"), fc.dayMax(d));
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    private void renderAlerts(JsonWriter w, String city, Forecast fc) throws IOException {
+        List<String> triggered = alerts.checkAlerts(city, fc);
+        w.beginObject();
+        w.name("city").value(city);
+        w.name("alerts").beginArray();
+        for (String a : triggered) w.value(a);
+        w.endArray();
+        w.endObject();
+    }
+
+    private static void number(JsonWriter w, double v) throws IOException {
+        if (Double.isNaN(v)) w.nullValue();
+        else w.value(v);
+    }
+
+    private static byte[] error(String message) {
+        return render((w, c, f) -> w.beginObject().name("error").value(message).endObject(), null, null);
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] body, String cache) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (cache != null) ex.getResponseHeaders().set("X-Cache", cache);
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    public String stats() {
+        return String.format("requests=%d, bodies rendered=%d, rendered cache: %s",
+                requests.get(), renders.get(), rendered.stats());
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.weather;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache-then-upstream lookup shared by the console, batch and other entry points.
+ * Concurrent misses for the same normalized city are coalesced into one upstream fetch.
+ * Entries past the soft TTL are still served immediately while a background refresh
+ * runs; only entries past the hard TTL make the caller wait for upstream. Cities that
+ * are looked up often are refreshed shortly before they go stale. When upstream fails
+ * (or its circuit breaker is open) a lookup falls back to the last stored entry, however old.
+ */
+public class WeatherService {
+    private static final SingleFlight<BatchFetcher.Result> inflight = new SingleFlight<>();
+
+    private static final ExecutorService refresher = Executors.newFixedThreadPool(
+            Math.max(1, Config.BATCH_PARALLELISM / 2), BatchFetcher.daemonThreads("weather-refresh"));
+    private static final Map<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    /** Lookup counts per canonical city (CityResolver.cacheKey) since the last refresh-ahead pass. */
+    private static final class Access {
+        final String city;
+        final AtomicInteger hits = new AtomicInteger();
+
+        Access(String city) {
+            this.city = city;
+        }
+    }
+
+    private static final Map<String, Access> access = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService scheduler;
+
+    private static final AtomicLong staleServed = new AtomicLong();
+    private static final AtomicLong backgroundRefreshes = new AtomicLong();
+    private static final AtomicLong aheadRefreshes = new AtomicLong();
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    private static final Histogram LOOKUP = Metrics.timer("lookup");
+    private static final LongAdder FRESH = Metrics.counter("lookup.fresh");
+    private static final LongAdder STALE = Metrics.counter("lookup.stale");
+    private static final LongAdder MISS = Metrics.counter("lookup.miss");
+
+    /** Returns cached JSON when fresh or stale, otherwise fetches (shared with concurrent callers). */
+    public static BatchFetcher.Result lookup(String city) {
+        long start = System.nanoTime();
+        try {
+            return resolve(city);
+        } finally {
+            LOOKUP.recordSince(start);
+        }
+    }
+
+    private static BatchFetcher.Result resolve(String city) {
+        String key = CityResolver.cacheKey(city);
+        access.computeIfAbsent(key, k -> new Access(city)).hits.incrementAndGet();
+
+        Optional<CacheDB.Entry> entry = CacheDB.getEntry(city);
+        if (entry.isPresent()) {
+            if (entry.get().isFresh(Instant.now().getEpochSecond())) {
+                FRESH.increment();
+                return BatchFetcher.Result.cached(city, entry.get(), false);
+            }
+            STALE.increment();
+            staleServed.incrementAndGet();
+            if (refreshInBackground(city)) backgroundRefreshes.incrementAndGet();
+            return BatchFetcher.Result.cached(city, entry.get(), true);
+        }
+        MISS.increment();
+        BatchFetcher.Result r = load(city, Config.FETCH_TIMEOUT_MS, true);
+        if (!r.ok()) {
+            Optional<CacheDB.Entry> last = CacheDB.getLastKnown(city);
+            if (last.isPresent()) {
+                fallbacks.incrementAndGet();
+                return BatchFetcher.Result.fallback(r, last.get());
+            }
+        }
+        return r;
+    }
+
+    /** Fetches from upstream and writes the cache; concurrent calls for one city share the fetch. */
+    public static BatchFetcher.Result fetch(String city, long timeoutMillis) {
+        return load(city, timeoutMillis, false);
+    }
+
+    private static BatchFetcher.Result load(String city, long timeoutMillis, boolean recheckCache) {
+        return inflight.run(CityResolver.cacheKey(city), () -> {
+            if (recheckCache) {
+                // a flight may have completed between our miss and becoming leader
+                Optional<CacheDB.Entry> cached = CacheDB.getEntry(city);
+                if (cached.isPresent() && cached.get().isFresh(Instant.now().getEpochSecond())) {
+                    return BatchFetcher.Result.cached(city, cached.get(), false);
+                }
+            }
+            BatchFetcher.Result r = BatchFetcher.fetchOne(city, timeoutMillis);
+            if (!r.ok()) return r;
+            // learn the canonical city first, so the entry is stored under its id
+            CityResolver.learn(city, r.json);
+            CacheDB.Entry stored = CacheDB.put(city, r.json, r.forecast());
+            HistoryStore.record(city, r.forecast(), stored.fetchedAt);
+            return r.stored(stored);
+        });
+    }
+
+    /** Queues a refresh unless one is already queued or in flight; returns whether it queued one. */
+    private static boolean refreshInBackground(String city) {
+        // the key load() coalesces on, so every spelling of a city shares one refresh
+        String key = CityResolver.cacheKey(city);
+        if (inflight.inFlight(key) || refreshing.putIfAbsent(key, Boolean.TRUE) != null) return false;
+        try {
+            refresher.execute(() -> {
+                try {
+                    fetch(city, Config.FETCH_TIMEOUT_MS);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            return false;
+        }
+    }
+
+    /** Starts the periodic refresh-ahead pass for hot cities (idempotent). */
+    public static synchronized void startRefreshAhead() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(BatchFetcher.daemonThreads("weather-refresh-ahead"));
+        long every = Config.REFRESH_AHEAD_INTERVAL_SECONDS;
+        scheduler.scheduleWithFixedDelay(WeatherService::refreshAhead, every, every, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopRefreshAhead() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Refresh hot cities about to go stale, then halve every count so heat decays over time
+    private static void refreshAhead() {
+        long now = Instant.now().getEpochSecond();
+        long refreshAfter = Config.SOFT_TTL_SECONDS - Config.REFRESH_AHEAD_LEAD_SECONDS;
+        for (Map.Entry<String, Access> en : access.entrySet()) {
+            Access a = en.getValue();
+            int hits = a.hits.get();
+            if (hits >= Config.REFRESH_AHEAD_MIN_HITS) {
+                Optional<CacheDB.Entry> entry = CacheDB.getEntry(a.city);
+                if (entry.isPresent() && entry.get().ageSeconds(now) >= refreshAfter) {
+                    if (refreshInBackground(a.city)) aheadRefreshes.incrementAndGet();
+                }
+            }
+            int decayed = hits / 2;
+            a.hits.addAndGet(decayed - hits);
+            if (decayed == 0 && a.hits.get() <= 0) access.remove(en.getKey(), a);
+        }
+    }
+
+    public static SingleFlight<BatchFetcher.Result> inflight() {
+        return inflight;
+    }
+
+    public static String refreshStats() {
+        return String.format("stale served=%d, background refreshes=%d, refresh-ahead=%d, last-known fallbacks=%d, tracked cities=%d",
+                staleServed.get(), backgroundRefreshes.get(), aheadRefreshes.get(), fallbacks.get(), access.size());
+    }
+}